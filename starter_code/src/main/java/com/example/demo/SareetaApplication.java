@@ -1,24 +1,54 @@
 package com.example.demo;
 
+import java.time.Duration;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.LazyInitializationExcludeFilter;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.orm.jpa.AbstractEntityManagerFactoryBean;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.web.SecurityFilterChain;
+
+import com.example.demo.security.CalibratedBCryptPasswordEncoder;
+
+import jakarta.persistence.EntityManagerFactory;
 
 @EnableJpaRepositories("com.example.demo.model.persistence.repositories")
 @EntityScan("com.example.demo.model.persistence")
 @SpringBootApplication
 public class SareetaApplication {
 
+	// Room for every step of a startup, a few per bean
+	private static final int STARTUP_STEPS = 10_000;
+
 	public static void main(String[] args) {
 
-		SpringApplication.run(SareetaApplication.class, args);
+		SpringApplication application = new SpringApplication(SareetaApplication.class);
+		application.setApplicationStartup(new BufferingApplicationStartup(STARTUP_STEPS));
+		application.run(args);
+	}
+
+	@Bean
+	public BCryptPasswordEncoder passwordEncoder(@Value("${sareeta.security.bcrypt.strength:0}") int strength,
+			@Value("${sareeta.security.bcrypt.target-hash-time:100ms}") Duration targetHashTime,
+			@Value("${sareeta.security.bcrypt.min-strength:10}") int minStrength,
+			@Value("${sareeta.security.bcrypt.max-strength:16}") int maxStrength) {
+		return new CalibratedBCryptPasswordEncoder(strength > 0 ? strength
+				: CalibratedBCryptPasswordEncoder.calibrate(targetHashTime, minStrength, maxStrength));
 	}
 
+	// With spring.main.lazy-initialization, the beans every request goes through are still created
+	// during startup, so the first request does not pay for them
 	@Bean
-	public BCryptPasswordEncoder passwordEncoder() {
-		return new BCryptPasswordEncoder();
+	static LazyInitializationExcludeFilter requestPathBeans() {
+		return LazyInitializationExcludeFilter.forBeanTypes(DataSource.class, EntityManagerFactory.class,
+				AbstractEntityManagerFactoryBean.class, SecurityFilterChain.class);
 	}
-}
\ No newline at end of file
+}
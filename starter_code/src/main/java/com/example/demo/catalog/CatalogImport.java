@@ -0,0 +1,75 @@
+package com.example.demo.catalog;
+
+import com.example.demo.model.responses.CatalogImportResponse;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Progress of one import. Only the importing thread writes it; progress requests read it from
+ * other threads.
+ */
+final class CatalogImport {
+
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+
+    private final long id;
+    private final String username;
+    private final Instant startedAt = Instant.now();
+    private final List<CatalogImportResponse.Rejection> rejections = new CopyOnWriteArrayList<>();
+    private volatile long rowsRead;
+    private volatile long rowsWritten;
+    private volatile long rowsRejected;
+    private volatile CatalogImportResponse.Status status = CatalogImportResponse.Status.RUNNING;
+    private volatile String failure;
+    private volatile Instant finishedAt;
+
+    CatalogImport(long id, String username) {
+        this.id = id;
+        this.username = username;
+    }
+
+    long id() {
+        return id;
+    }
+
+    long rowsWritten() {
+        return rowsWritten;
+    }
+
+    long rowsRejected() {
+        return rowsRejected;
+    }
+
+    void read() {
+        rowsRead++;
+    }
+
+    void written(int rows) {
+        rowsWritten += rows;
+    }
+
+    void rejected(long line, String reason) {
+        rowsRejected++;
+        if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+            rejections.add(new CatalogImportResponse.Rejection(line, reason));
+        }
+    }
+
+    void completed() {
+        finishedAt = Instant.now();
+        status = CatalogImportResponse.Status.COMPLETED;
+    }
+
+    void failed(String reason) {
+        failure = reason;
+        finishedAt = Instant.now();
+        status = CatalogImportResponse.Status.FAILED;
+    }
+
+    CatalogImportResponse toResponse() {
+        return new CatalogImportResponse(id, username, status, failure, rowsRead, rowsWritten, rowsRejected,
+                List.copyOf(rejections), startedAt, finishedAt);
+    }
+}
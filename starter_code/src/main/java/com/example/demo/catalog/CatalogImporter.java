@@ -0,0 +1,258 @@
+package com.example.demo.catalog;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.responses.CatalogImportResponse;
+import com.example.demo.search.ItemSearchIndex;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Imports items from a CSV or NDJSON upload as it arrives, a batch of rows at a time, so memory
+ * use does not grow with the size of the upload.
+ *
+ * <p>A row without an id adds an item, with an id from the entity's own sequence. A row with an id
+ * updates that item; ids below {@link Item#FIRST_GENERATED_ID} are the fixed catalog rows and are
+ * added when missing, while a higher id that does not exist is rejected, as the sequence would hand
+ * it out again later. Rows that cannot be used are counted and the first of them reported, without
+ * stopping the import. Each batch is written in one transaction, as JDBC batch updates followed by
+ * batch inserts for the fixed rows no update found, which any database runs, and stays written if
+ * a later batch fails. Writes bypass JPA, so each batch evicts the items it wrote from the
+ * second-level cache, drops the cached item queries and updates the search index itself.
+ */
+@Service
+public class CatalogImporter {
+
+    public static final MediaType TEXT_CSV = MediaType.valueOf("text/csv");
+    public static final MediaType APPLICATION_NDJSON = MediaType.valueOf("application/x-ndjson");
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogImporter.class);
+    private static final long LOG_EVERY_ROWS = 100_000;
+
+    private static final String INSERT_ITEM = "insert into item (id, name, price, description) values (?, ?, ?, ?)";
+    private static final String UPDATE_ITEM = "update item set name = ?, price = ?, description = ? where id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+    private final SessionFactoryImplementor sessionFactory;
+    private final IdentifierGenerator itemIds;
+    private final ItemSearchIndex searchIndex;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final AtomicLong importIds = new AtomicLong();
+    // Running imports and those finished recently, for progress requests
+    private final Cache<Long, CatalogImport> imports;
+    private final Counter written;
+    private final Counter rejected;
+
+    public CatalogImporter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                           EntityManagerFactory entityManagerFactory, ItemSearchIndex searchIndex,
+                           ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                           @Value("${sareeta.catalog.import.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManagerFactory = entityManagerFactory;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.itemIds = (IdentifierGenerator) sessionFactory.getMappingMetamodel()
+                .getEntityDescriptor(Item.class).getGenerator();
+        this.searchIndex = searchIndex;
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.imports = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofHours(1))
+                .build();
+        this.written = Counter.builder("sareeta.catalog.import.rows")
+                .description("Rows of catalog imports, by outcome")
+                .tag("outcome", "written")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("sareeta.catalog.import.rows")
+                .description("Rows of catalog imports, by outcome")
+                .tag("outcome", "rejected")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reads the upload to its end and writes its items. Returns the outcome, which is also listed
+     * by {@link #imports()} for an hour.
+     *
+     * @throws IllegalArgumentException if the content type is not CSV or NDJSON, or a CSV upload has
+     *                                  no usable header; nothing is written then
+     */
+    public CatalogImportResponse importItems(InputStream body, MediaType contentType, String username) {
+        Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, charset));
+        ItemRecordReader records;
+        try {
+            if (TEXT_CSV.isCompatibleWith(contentType)) {
+                records = new CsvItemRecordReader(reader);
+            } else if (APPLICATION_NDJSON.isCompatibleWith(contentType)) {
+                records = new NdjsonItemRecordReader(reader, objectMapper);
+            } else {
+                throw new IllegalArgumentException("Imports are read from text/csv or application/x-ndjson");
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("The upload could not be read", e);
+        }
+
+        CatalogImport progress = new CatalogImport(importIds.incrementAndGet(), username);
+        imports.put(progress.id(), progress);
+        log.info("Catalog import {} started by {}", progress.id(), username);
+        List<ItemRecord> batch = new ArrayList<>(batchSize);
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            while (true) {
+                ItemRecord record;
+                try {
+                    record = records.next();
+                } catch (InvalidRecordException e) {
+                    progress.read();
+                    reject(progress, e.getLine(), e.getMessage());
+                    continue;
+                }
+                if (record == null) {
+                    break;
+                }
+                progress.read();
+                batch.add(record);
+                if (batch.size() == batchSize) {
+                    write(batch, session, progress);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                write(batch, session, progress);
+            }
+            progress.completed();
+            log.info("Catalog import {} wrote {} rows and rejected {}", progress.id(), progress.rowsWritten(),
+                    progress.rowsRejected());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Catalog import {} failed after {} rows", progress.id(), progress.rowsWritten(), e);
+            progress.failed(e.getMessage());
+        }
+        imports.put(progress.id(), progress);
+        return progress.toResponse();
+    }
+
+    /**
+     * Imports running now or finished in the last hour, newest first.
+     */
+    public List<CatalogImportResponse> imports() {
+        return imports.asMap().values().stream()
+                .sorted(Comparator.comparingLong(CatalogImport::id).reversed())
+                .map(CatalogImport::toResponse)
+                .toList();
+    }
+
+    private void write(List<ItemRecord> batch, StatelessSession session, CatalogImport progress) {
+        List<ItemRecord> inserts = new ArrayList<>();
+        List<ItemRecord> updates = new ArrayList<>();
+        for (ItemRecord record : batch) {
+            if (record.id() == null) {
+                inserts.add(record.withId(nextId(session)));
+            } else {
+                updates.add(record);
+            }
+        }
+        List<ItemRecord> unknown = new ArrayList<>();
+        List<ItemRecord> applied = transactionTemplate.execute(status -> {
+            List<ItemRecord> written = new ArrayList<>(inserts);
+            List<ItemRecord> missing = new ArrayList<>();
+            int[][] updateCounts = updates.isEmpty() ? new int[0][] : jdbcTemplate.batchUpdate(UPDATE_ITEM, updates,
+                    updates.size(), (statement, record) -> {
+                        statement.setString(1, record.name());
+                        statement.setBigDecimal(2, record.price().toBigDecimal());
+                        statement.setString(3, record.description());
+                        statement.setLong(4, record.id());
+                    });
+            int update = 0;
+            for (int[] counts : updateCounts) {
+                for (int count : counts) {
+                    ItemRecord record = updates.get(update++);
+                    if (count == 0) {
+                        missing.add(record);
+                    } else {
+                        // Including Statement.SUCCESS_NO_INFO, from drivers that do not count batch rows
+                        written.add(record);
+                    }
+                }
+            }
+            // A missing fixed catalog row is added; a missing higher id is rejected, as the sequence
+            // would hand it out again later
+            List<ItemRecord> toInsert = new ArrayList<>(inserts);
+            for (ItemRecord record : missing) {
+                if (record.id() < Item.FIRST_GENERATED_ID) {
+                    toInsert.add(record);
+                    written.add(record);
+                } else {
+                    unknown.add(record);
+                }
+            }
+            if (!toInsert.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_ITEM, toInsert, toInsert.size(), (statement, record) -> {
+                    statement.setLong(1, record.id());
+                    statement.setString(2, record.name());
+                    statement.setBigDecimal(3, record.price().toBigDecimal());
+                    statement.setString(4, record.description());
+                });
+            }
+            return written;
+        });
+        for (ItemRecord record : unknown) {
+            reject(progress, record.line(), "no item with id " + record.id());
+        }
+
+        for (ItemRecord record : applied) {
+            entityManagerFactory.getCache().evict(Item.class, record.id());
+            searchIndex.put(record.toItem());
+        }
+        sessionFactory.getCache().evictQueryRegion(Item.QUERY_CACHE_REGION);
+
+        long before = progress.rowsWritten();
+        progress.written(applied.size());
+        written.increment(applied.size());
+        if (before / LOG_EVERY_ROWS != progress.rowsWritten() / LOG_EVERY_ROWS) {
+            log.info("Catalog import {}: {} rows written, {} rejected", progress.id(), progress.rowsWritten(),
+                    progress.rowsRejected());
+        }
+        // Refreshes the entry's age, so a long import stays listed while it runs
+        imports.put(progress.id(), progress);
+    }
+
+    private void reject(CatalogImport progress, long line, String reason) {
+        progress.rejected(line, reason);
+        rejected.increment();
+    }
+
+    // The generator hands out ids from blocks held in memory and only reaches the sequence when a
+    // block runs out
+    private long nextId(StatelessSession session) {
+        return ((Number) itemIds.generate((SharedSessionContractImplementor) session, null)).longValue();
+    }
+}
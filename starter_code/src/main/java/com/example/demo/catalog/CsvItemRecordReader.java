@@ -0,0 +1,128 @@
+package com.example.demo.catalog;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads items from CSV as in RFC 4180: comma separated, fields optionally in double quotes, which
+ * may hold commas, line breaks and doubled quotes. The first row names the columns; {@code name},
+ * {@code price} and {@code description} are required, {@code id} is optional and other columns are
+ * ignored.
+ */
+final class CsvItemRecordReader extends ItemRecordReader {
+
+    private final int columns;
+    private final int idColumn;
+    private final int nameColumn;
+    private final int priceColumn;
+    private final int descriptionColumn;
+
+    private final List<String> fields = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+    // Why the row just read cannot be used, or null
+    private String problem;
+
+    CsvItemRecordReader(Reader reader) throws IOException {
+        super(reader);
+        if (!readRecord() || problem != null) {
+            throw new IllegalArgumentException("The CSV upload has no header row");
+        }
+        List<String> header = new ArrayList<>();
+        for (String name : fields) {
+            header.add(name.replace("\uFEFF", "").trim().toLowerCase(Locale.ROOT));
+        }
+        columns = header.size();
+        idColumn = header.indexOf("id");
+        nameColumn = header.indexOf("name");
+        priceColumn = header.indexOf("price");
+        descriptionColumn = header.indexOf("description");
+        if (nameColumn < 0 || priceColumn < 0 || descriptionColumn < 0) {
+            throw new IllegalArgumentException(
+                    "The CSV header needs name, price and description columns, and may have id; got " + header);
+        }
+    }
+
+    @Override
+    ItemRecord next() throws IOException {
+        while (true) {
+            long line = line();
+            if (!readRecord()) {
+                return null;
+            }
+            if (problem != null) {
+                throw new InvalidRecordException(line, problem);
+            }
+            if (fields.size() == 1 && fields.getFirst().isBlank()) {
+                continue;
+            }
+            if (fields.size() != columns) {
+                throw new InvalidRecordException(line, "expected " + columns + " fields, found " + fields.size());
+            }
+            return ItemRecord.parse(line, idColumn < 0 ? null : fields.get(idColumn), fields.get(nameColumn),
+                    fields.get(priceColumn), fields.get(descriptionColumn));
+        }
+    }
+
+    // Reads the next row into fields, false at the end of the input
+    private boolean readRecord() throws IOException {
+        fields.clear();
+        field.setLength(0);
+        problem = null;
+        int c = read();
+        if (c == -1) {
+            return false;
+        }
+        int chars = 0;
+        boolean inQuotes = false;
+        while (true) {
+            if (c == -1) {
+                if (inQuotes) {
+                    problem = "quoted field is not closed";
+                }
+                break;
+            }
+            if (inQuotes) {
+                if (c == '"') {
+                    int next = read();
+                    if (next != '"') {
+                        inQuotes = false;
+                        c = next;
+                        continue;
+                    }
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                inQuotes = true;
+                c = read();
+                continue;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                c = read();
+                continue;
+            } else if (c == '\r' || c == '\n') {
+                if (c == '\r') {
+                    int next = read();
+                    if (next != '\n') {
+                        unread(next);
+                    }
+                }
+                break;
+            }
+            // Past the cap the rest of the row is still read, so the next row starts in the right place
+            if (++chars <= MAX_RECORD_CHARS) {
+                field.append((char) c);
+            } else if (problem == null) {
+                problem = "row is longer than " + MAX_RECORD_CHARS + " characters";
+            }
+            c = read();
+        }
+        fields.add(field.toString());
+        if (problem != null) {
+            fields.clear();
+        }
+        return true;
+    }
+}
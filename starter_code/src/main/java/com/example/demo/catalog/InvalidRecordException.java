@@ -0,0 +1,19 @@
+package com.example.demo.catalog;
+
+/**
+ * A row of an import that cannot be used. The reader has moved past it, so the import can go on
+ * with the next row.
+ */
+class InvalidRecordException extends RuntimeException {
+
+    private final long line;
+
+    InvalidRecordException(long line, String message) {
+        super(message);
+        this.line = line;
+    }
+
+    long getLine() {
+        return line;
+    }
+}
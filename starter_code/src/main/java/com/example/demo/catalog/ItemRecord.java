@@ -0,0 +1,70 @@
+package com.example.demo.catalog;
+
+import com.example.demo.model.money.Money;
+import com.example.demo.model.persistence.Item;
+
+/**
+ * One item read from an import. The id is null for a new item; with an id the row updates that
+ * item.
+ */
+record ItemRecord(long line, Long id, String name, Money price, String description) {
+
+    // The item columns are the default VARCHAR(255)
+    private static final int MAX_TEXT_LENGTH = 255;
+
+    /**
+     * Validates the fields of one row as read from the upload.
+     *
+     * @throws InvalidRecordException if a field is missing or out of range
+     */
+    static ItemRecord parse(long line, String id, String name, String price, String description) {
+        Long itemId = null;
+        if (id != null && !id.isBlank()) {
+            try {
+                itemId = Long.valueOf(id.trim());
+            } catch (NumberFormatException e) {
+                throw new InvalidRecordException(line, "id is not a number: " + id);
+            }
+            if (itemId <= 0) {
+                throw new InvalidRecordException(line, "id must be positive");
+            }
+        }
+        requireText(line, "name", name);
+        requireText(line, "description", description);
+        if (price == null || price.isBlank()) {
+            throw new InvalidRecordException(line, "price is missing");
+        }
+        Money amount;
+        try {
+            amount = Money.of(price.trim());
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new InvalidRecordException(line, "price is not an amount: " + price);
+        }
+        if (amount.compareTo(Money.ZERO) < 0) {
+            throw new InvalidRecordException(line, "price must not be negative");
+        }
+        return new ItemRecord(line, itemId, name.trim(), amount, description.trim());
+    }
+
+    ItemRecord withId(long id) {
+        return new ItemRecord(line, id, name, price, description);
+    }
+
+    Item toItem() {
+        Item item = new Item();
+        item.setId(id);
+        item.setName(name);
+        item.setPrice(price);
+        item.setDescription(description);
+        return item;
+    }
+
+    private static void requireText(long line, String field, String value) {
+        if (value == null || value.isBlank()) {
+            throw new InvalidRecordException(line, field + " is missing");
+        }
+        if (value.trim().length() > MAX_TEXT_LENGTH) {
+            throw new InvalidRecordException(line, field + " is longer than " + MAX_TEXT_LENGTH + " characters");
+        }
+    }
+}
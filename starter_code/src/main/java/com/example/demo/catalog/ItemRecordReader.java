@@ -0,0 +1,54 @@
+package com.example.demo.catalog;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads items from an upload one row at a time, holding no more than one row in memory. Rows are
+ * capped at {@link #MAX_RECORD_CHARS}; a longer row is skipped over and reported as invalid.
+ */
+abstract class ItemRecordReader {
+
+    static final int MAX_RECORD_CHARS = 64 * 1024;
+
+    private final Reader reader;
+    private int pushedBack = -2;
+    // Line the next character is on, counting from 1
+    private long line = 1;
+
+    ItemRecordReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * The next row, or null at the end of the upload.
+     *
+     * @throws InvalidRecordException for a row that cannot be used; the next call reads the row after it
+     */
+    abstract ItemRecord next() throws IOException;
+
+    int read() throws IOException {
+        int c;
+        if (pushedBack != -2) {
+            c = pushedBack;
+            pushedBack = -2;
+        } else {
+            c = reader.read();
+        }
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    void unread(int c) {
+        if (c == '\n') {
+            line--;
+        }
+        pushedBack = c;
+    }
+
+    long line() {
+        return line;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.demo.catalog;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads items from newline-delimited JSON, one object per line with {@code name}, {@code price}
+ * and {@code description}, and optionally {@code id}. Prices may be JSON numbers or strings.
+ */
+final class NdjsonItemRecordReader extends ItemRecordReader {
+
+    private final ObjectReader json;
+    private final StringBuilder row = new StringBuilder();
+
+    NdjsonItemRecordReader(Reader reader, ObjectMapper objectMapper) {
+        super(reader);
+        // Keeps prices such as 0.1 exact instead of going through a double
+        this.json = objectMapper.reader().with(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+    }
+
+    @Override
+    ItemRecord next() throws IOException {
+        while (true) {
+            long line = line();
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            row.setLength(0);
+            boolean tooLong = false;
+            while (c != -1 && c != '\n') {
+                if (row.length() < MAX_RECORD_CHARS) {
+                    row.append((char) c);
+                } else {
+                    tooLong = true;
+                }
+                c = read();
+            }
+            if (tooLong) {
+                throw new InvalidRecordException(line, "row is longer than " + MAX_RECORD_CHARS + " characters");
+            }
+            if (row.toString().isBlank()) {
+                continue;
+            }
+            JsonNode item;
+            try {
+                item = json.readTree(row.toString());
+            } catch (JsonProcessingException e) {
+                throw new InvalidRecordException(line, "row is not valid JSON");
+            }
+            if (!item.isObject()) {
+                throw new InvalidRecordException(line, "row is not a JSON object");
+            }
+            return ItemRecord.parse(line, text(item, "id"), text(item, "name"), text(item, "price"),
+                    text(item, "description"));
+        }
+    }
+
+    private static String text(JsonNode item, String field) {
+        JsonNode value = item.get(field);
+        return value == null || value.isNull() || value.isContainerNode() ? null : value.asText();
+    }
+}
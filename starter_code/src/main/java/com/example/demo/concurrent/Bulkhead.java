@@ -0,0 +1,111 @@
+package com.example.demo.concurrent;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * A fixed-size pool with a bounded queue that isolates one kind of expensive work from the
+ * request threads. Callers block until their task has run; once the queue is full new work is
+ * rejected immediately with {@link BulkheadFullException} instead of waiting.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final ThreadPoolExecutor executor;
+    private final Timer waitTimer;
+    private final Counter rejectedCounter;
+
+    public Bulkhead(String name, int threads, int queueCapacity, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new NamedThreadFactory(name),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.waitTimer = Timer.builder("bulkhead.wait")
+                .description("Time a task spent queued before a worker picked it up")
+                .tag("pool", name)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("bulkhead.rejected")
+                .tag("pool", name)
+                .register(meterRegistry);
+        Gauge.builder("bulkhead.queue.depth", executor, e -> e.getQueue().size())
+                .tag("pool", name)
+                .register(meterRegistry);
+        Gauge.builder("bulkhead.queue.capacity", executor,
+                        e -> e.getQueue().size() + e.getQueue().remainingCapacity())
+                .tag("pool", name)
+                .register(meterRegistry);
+        Gauge.builder("bulkhead.active", executor, ThreadPoolExecutor::getActiveCount)
+                .tag("pool", name)
+                .register(meterRegistry);
+    }
+
+    public <T> T call(Supplier<T> task) {
+        long enqueuedAt = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                waitTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                return task.get();
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new BulkheadFullException(name);
+        }
+
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(cause);
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting on bulkhead '" + name + "'", e);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+
+        private final String prefix;
+        private final AtomicInteger counter = new AtomicInteger();
+
+        NamedThreadFactory(String name) {
+            this.prefix = name + "-bulkhead-";
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
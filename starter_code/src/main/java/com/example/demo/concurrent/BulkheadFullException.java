@@ -0,0 +1,8 @@
+package com.example.demo.concurrent;
+
+public class BulkheadFullException extends RuntimeException {
+
+    public BulkheadFullException(String bulkheadName) {
+        super("Bulkhead '" + bulkheadName + "' is at capacity");
+    }
+}
@@ -1,67 +1,65 @@
 package com.example.demo.controllers;
 
 import java.util.Optional;
-import java.util.stream.IntStream;
 
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.demo.model.persistence.Cart;
-import com.example.demo.model.persistence.Item;
-import com.example.demo.model.persistence.User;
-import com.example.demo.model.persistence.repositories.CartRepository;
-import com.example.demo.model.persistence.repositories.ItemRepository;
-import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.BatchModifyCartRequest;
 import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.BatchModifyCartResponse;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.service.CartService;
 
 @RestController
+@Timed(value = "sareeta.controller", histogram = true)
 @RequestMapping("/api/cart")
 public class CartController {
 	
 	@Autowired
-	private UserRepository userRepository;
-	
-	@Autowired
-	private CartRepository cartRepository;
-	
-	@Autowired
-	private ItemRepository itemRepository;
+	private CartService cartService;
 	
 	@PostMapping("/addToCart")
-	public ResponseEntity<Cart> addTocart(@RequestBody ModifyCartRequest request) {
-		User user = userRepository.findByUsername(request.getUsername());
-		if(user == null) {
-			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
-		}
-		Optional<Item> item = itemRepository.findById(request.getItemId());
-		if(!item.isPresent()) {
+	public ResponseEntity<Cart> addTocart(@RequestBody ModifyCartRequest request,
+			@AuthenticationPrincipal AuthenticatedUser principal) {
+		Optional<Cart> cart = cartService.addItem(request.getUsername(), principal,
+				request.getItemId(), request.getQuantity());
+		if(!cart.isPresent()) {
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Cart cart = user.getCart();
-		IntStream.range(0, request.getQuantity())
-			.forEach(i -> cart.addItem(item.get()));
-		return ResponseEntity.ok(cartRepository.save(cart));
+		return ResponseEntity.ok(cart.get());
 	}
 	
 	@PostMapping("/removeFromCart")
-	public ResponseEntity<Cart> removeFromcart(@RequestBody ModifyCartRequest request) {
-		User user = userRepository.findByUsername(request.getUsername());
-		if(user == null) {
+	public ResponseEntity<Cart> removeFromcart(@RequestBody ModifyCartRequest request,
+			@AuthenticationPrincipal AuthenticatedUser principal) {
+		Optional<Cart> cart = cartService.removeItem(request.getUsername(), principal,
+				request.getItemId(), request.getQuantity());
+		if(!cart.isPresent()) {
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Optional<Item> item = itemRepository.findById(request.getItemId());
-		if(!item.isPresent()) {
+		return ResponseEntity.ok(cart.get());
+	}
+
+	@PostMapping("/batch")
+	public ResponseEntity<BatchModifyCartResponse> modifyCart(@RequestBody BatchModifyCartRequest request,
+			@AuthenticationPrincipal AuthenticatedUser principal) {
+		if(request.getOperations() == null || request.getOperations().isEmpty()) {
+			throw new IllegalArgumentException("At least one cart operation is required");
+		}
+		Optional<BatchModifyCartResponse> response = cartService.applyBatch(request.getUsername(), principal,
+				request.getOperations());
+		if(!response.isPresent()) {
 			return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
 		}
-		Cart cart = user.getCart();
-		IntStream.range(0, request.getQuantity())
-			.forEach(i -> cart.removeItem(item.get()));
-
-		return ResponseEntity.ok(cartRepository.save(cart));
+		return ResponseEntity.ok(response.get());
 	}
 }
@@ -0,0 +1,48 @@
+package com.example.demo.controllers;
+
+import java.io.InputStream;
+import java.util.List;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.catalog.CatalogImporter;
+import com.example.demo.model.responses.CatalogImportResponse;
+import com.example.demo.security.AuthenticatedUser;
+
+/**
+ * Catalog administration, open only to admins.
+ */
+@RestController
+@Timed(value = "sareeta.controller", histogram = true)
+@RequestMapping("/api/admin/catalog")
+public class CatalogAdminController {
+
+	@Autowired
+	private CatalogImporter catalogImporter;
+
+	// The body is read as it arrives rather than bound, so an upload of any size is never held whole
+	@PostMapping(value = "/import", consumes = {"text/csv", "application/x-ndjson"})
+	public ResponseEntity<CatalogImportResponse> importItems(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+			InputStream body, @AuthenticationPrincipal AuthenticatedUser principal) {
+		CatalogImportResponse result = catalogImporter.importItems(body, MediaType.parseMediaType(contentType),
+				principal.getName());
+		return result.getStatus() == CatalogImportResponse.Status.COMPLETED ? ResponseEntity.ok(result)
+				: ResponseEntity.internalServerError().body(result);
+	}
+
+	// Progress of running imports, and the outcome of those finished in the last hour
+	@GetMapping("/imports")
+	public ResponseEntity<List<CatalogImportResponse>> getImports() {
+		return ResponseEntity.ok(catalogImporter.imports());
+	}
+}
@@ -2,22 +2,31 @@ package com.example.demo.controllers;
 
 import java.util.List;
 
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.search.ItemSearchIndex;
 
 @RestController
+@Timed(value = "sareeta.controller", histogram = true)
 @RequestMapping("/api/item")
 public class ItemController {
 
+	private static final int MAX_SEARCH_RESULTS = 100;
+
 	@Autowired
 	private ItemRepository itemRepository;
+
+	@Autowired
+	private ItemSearchIndex searchIndex;
 	
 	@GetMapping
 	public ResponseEntity<List<Item>> getItems() {
@@ -25,6 +34,15 @@ public class ItemController {
 		return ResponseEntity.ok(itemRepository.findAll());
 	}
 	
+	@GetMapping("/search")
+	public ResponseEntity<List<Item>> searchItems(@RequestParam String q,
+			@RequestParam(defaultValue = "20") int limit) {
+		if(limit < 1 || limit > MAX_SEARCH_RESULTS) {
+			throw new IllegalArgumentException("limit must be between 1 and " + MAX_SEARCH_RESULTS);
+		}
+		return ResponseEntity.ok(searchIndex.search(q, limit));
+	}
+
 	@GetMapping("/{id}")
 	public ResponseEntity<Item> getItemById(@PathVariable Long id) {
 		return ResponseEntity.of(itemRepository.findById(id));
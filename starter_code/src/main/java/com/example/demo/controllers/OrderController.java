@@ -1,50 +1,181 @@
 package com.example.demo.controllers;
 
+import java.net.URI;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.OrderLine;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
-import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.UserOrderSummary;
 import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserOrderSummaryRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.responses.OrderHistoryPage;
+import com.example.demo.model.responses.OrderStatusResponse;
+import com.example.demo.model.responses.OrderSummary;
+import com.example.demo.security.AuthenticatedUser;
+import com.example.demo.service.CartService;
+import com.example.demo.service.OrderService;
+import com.example.demo.service.OrderSubmissionPipeline;
 
 @RestController
+@Timed(value = "sareeta.controller", histogram = true)
 @RequestMapping("/api/order")
 public class OrderController {
-	
+
+	private static final int MAX_HISTORY_PAGE_SIZE = 100;
 	
 	@Autowired
 	private UserRepository userRepository;
 	
 	@Autowired
 	private OrderRepository orderRepository;
+
+	@Autowired
+	private UserOrderSummaryRepository summaryRepository;
+
+	@Autowired
+	private CartService cartService;
+
+	@Autowired
+	private OrderService orderService;
+
+	// Present when sareeta.order.async.enabled is set; submit then answers 202 and writes later
+	@Autowired(required = false)
+	private OrderSubmissionPipeline orderPipeline;
 	
 	
 	@PostMapping("/submit/{username}")
-	public ResponseEntity<UserOrder> submit(@PathVariable String username) {
-		User user = userRepository.findByUsername(username);
-		if(user == null) {
+	public ResponseEntity<?> submit(@PathVariable String username,
+			@AuthenticationPrincipal AuthenticatedUser principal) {
+		Optional<Cart> cart = cartService.findCart(username, principal);
+		if(!cart.isPresent()) {
 			return ResponseEntity.notFound().build();
 		}
-		UserOrder order = UserOrder.createFromCart(user.getCart());
-		return ResponseEntity.ok(orderRepository.save(order));
+		if(orderPipeline != null) {
+			Optional<Long> orderId = orderPipeline.submit(cart.get());
+			if(!orderId.isPresent()) {
+				return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+						.header(HttpHeaders.RETRY_AFTER, "1")
+						.build();
+			}
+			return ResponseEntity.accepted()
+					.location(URI.create("/api/order/status/" + username + "/" + orderId.get()))
+					.body(new OrderStatusResponse(orderId.get(), OrderStatusResponse.Status.QUEUED));
+		}
+		return ResponseEntity.ok(orderService.placeOrder(cart.get()));
+	}
+
+	@GetMapping("/summary/{username}")
+	public ResponseEntity<UserOrderSummary> getOrderSummary(@PathVariable String username,
+			@AuthenticationPrincipal AuthenticatedUser principal) {
+		Optional<Long> userId = findUserId(username, principal);
+		if(!userId.isPresent()) {
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.ok(summaryRepository.findById(userId.get())
+				.orElseGet(() -> new UserOrderSummary(userId.get())));
+	}
+
+	@GetMapping("/status/{username}/{orderId}")
+	public ResponseEntity<OrderStatusResponse> getOrderStatus(@PathVariable String username,
+			@PathVariable long orderId, @AuthenticationPrincipal AuthenticatedUser principal) {
+		Optional<Long> userId = findUserId(username, principal);
+		if(!userId.isPresent()) {
+			return ResponseEntity.notFound().build();
+		}
+		Optional<OrderStatusResponse.Status> status = orderPipeline == null
+				? Optional.empty()
+				: orderPipeline.status(orderId, userId.get());
+		if(!status.isPresent() && orderRepository.existsByIdAndUserId(orderId, userId.get())) {
+			status = Optional.of(OrderStatusResponse.Status.PERSISTED);
+		}
+		return status.map(value -> ResponseEntity.ok(new OrderStatusResponse(orderId, value)))
+				.orElseGet(() -> ResponseEntity.notFound().build());
 	}
 	
 	@GetMapping("/history/{username}")
-	public ResponseEntity<List<UserOrder>> getOrdersForUser(@PathVariable String username) {
+	public ResponseEntity<List<UserOrder>> getOrdersForUser(@PathVariable String username,
+			@AuthenticationPrincipal AuthenticatedUser principal) {
+		if(principal != null && principal.userId() != null && principal.isUser(username)) {
+			return ResponseEntity.ok(orderRepository.findByUserId(principal.userId()));
+		}
 		User user = userRepository.findByUsername(username);
 		if(user == null) {
 			return ResponseEntity.notFound().build();
 		}
 		return ResponseEntity.ok(orderRepository.findByUser(user));
 	}
+
+	@GetMapping("/history/{username}/summary")
+	public ResponseEntity<OrderHistoryPage> getOrderSummariesForUser(@PathVariable String username,
+			@RequestParam(required = false) Long before,
+			@RequestParam(defaultValue = "20") int limit,
+			@RequestParam(defaultValue = "false") boolean includeLines,
+			@AuthenticationPrincipal AuthenticatedUser principal) {
+		if(limit < 1 || limit > MAX_HISTORY_PAGE_SIZE) {
+			throw new IllegalArgumentException("limit must be between 1 and " + MAX_HISTORY_PAGE_SIZE);
+		}
+		Optional<Long> userId = findUserId(username, principal);
+		if(!userId.isPresent()) {
+			return ResponseEntity.notFound().build();
+		}
+
+		// One row more than the page tells us whether an older page exists
+		List<OrderSummary> orders = orderRepository.findSummariesByUserId(userId.get(),
+				before == null ? Long.MAX_VALUE : before, Limit.of(limit + 1));
+		Long nextCursor = null;
+		if(orders.size() > limit) {
+			orders = orders.subList(0, limit);
+			nextCursor = orders.get(limit - 1).getId();
+		}
+
+		if(includeLines && !orders.isEmpty()) {
+			Map<Long, List<OrderLine>> linesByOrder = orderRepository
+					.findLinesByOrderIds(orders.stream().map(OrderSummary::getId).toList()).stream()
+					.collect(Collectors.groupingBy(line -> line.getOrder().getId()));
+			orders.forEach(order -> order.setLines(linesByOrder.getOrDefault(order.getId(), List.of())));
+		}
+		return ResponseEntity.ok(new OrderHistoryPage(orders, nextCursor));
+	}
+
+	@GetMapping("/history/{username}/{orderId}/lines")
+	public ResponseEntity<List<OrderLine>> getOrderLines(@PathVariable String username, @PathVariable long orderId,
+			@AuthenticationPrincipal AuthenticatedUser principal) {
+		Optional<Long> userId = findUserId(username, principal);
+		if(!userId.isPresent()) {
+			return ResponseEntity.notFound().build();
+		}
+		List<OrderLine> lines = orderRepository.findLinesByOrderIdAndUserId(orderId, userId.get());
+		if(lines.isEmpty() && !orderRepository.existsByIdAndUserId(orderId, userId.get())) {
+			return ResponseEntity.notFound().build();
+		}
+		return ResponseEntity.ok(lines);
+	}
+
+	private Optional<Long> findUserId(String username, AuthenticatedUser principal) {
+		if(principal != null && principal.userId() != null && principal.isUser(username)) {
+			return Optional.of(principal.userId());
+		}
+		User user = userRepository.findByUsername(username);
+		return user == null ? Optional.empty() : Optional.of(user.getId());
+	}
 }
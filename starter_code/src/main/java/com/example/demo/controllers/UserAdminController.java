@@ -0,0 +1,48 @@
+package com.example.demo.controllers;
+
+import java.util.List;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.model.responses.BulkCreateUsersResponse;
+import com.example.demo.service.UserProvisioningService;
+
+/**
+ * User administration, open only to admins.
+ */
+@RestController
+@Timed(value = "sareeta.controller", histogram = true)
+@RequestMapping("/api/admin/users")
+public class UserAdminController {
+
+	@Autowired
+	private UserProvisioningService userProvisioningService;
+
+	// Answers 200 with a result per row, in request order, whether or not every row was created
+	@PostMapping("/bulk")
+	public ResponseEntity<BulkCreateUsersResponse> createUsers(@RequestBody List<CreateUserRequest> requests) {
+		return ResponseEntity.ok(userProvisioningService.createUsers(requests));
+	}
+
+	@PutMapping("/{username}/admin")
+	public ResponseEntity<Void> grantAdmin(@PathVariable String username) {
+		return userProvisioningService.setAdmin(username, true)
+				? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+	}
+
+	@DeleteMapping("/{username}/admin")
+	public ResponseEntity<Void> withdrawAdmin(@PathVariable String username) {
+		return userProvisioningService.setAdmin(username, false)
+				? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+	}
+}
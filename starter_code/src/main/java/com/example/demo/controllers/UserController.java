@@ -2,6 +2,7 @@ package com.example.demo.controllers;
 
 import java.util.Optional;
 
+import io.micrometer.core.annotation.Timed;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -10,16 +11,20 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.User;
-import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
 import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.security.JWTUtils;
+import com.example.demo.security.TokenRevocationList;
+import com.example.demo.security.VerifiedTokenCache;
 
 @RestController
+@Timed(value = "sareeta.controller", histogram = true)
 @RequestMapping("/api/user")
 public class UserController {
 	
@@ -27,10 +32,13 @@ public class UserController {
 	private UserRepository userRepository;
 	
 	@Autowired
-	private CartRepository cartRepository;
+	private BCryptPasswordEncoder passwordEncoder;
 
 	@Autowired
-	private BCryptPasswordEncoder passwordEncoder;
+	private VerifiedTokenCache tokenCache;
+
+	@Autowired
+	private TokenRevocationList tokenRevocationList;
 
 	@GetMapping("/id/{id}")
 	public ResponseEntity<User> findById(@PathVariable Long id) {
@@ -44,6 +52,15 @@ public class UserController {
 		return user == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(user);
 	}
 	
+	/**
+	 * Revokes the bearer token the request was made with. Other tokens of the user stay valid.
+	 */
+	@PostMapping("/logout")
+	public ResponseEntity<Void> logout(@RequestHeader(JWTUtils.HEADER_STRING) String authorization) {
+		tokenRevocationList.revoke(tokenCache.verify(authorization));
+		return ResponseEntity.noContent().build();
+	}
+
 	@PostMapping("/create")
 	public ResponseEntity<User> createUser(@RequestBody CreateUserRequest createUserRequest) {
 
@@ -59,8 +76,9 @@ public class UserController {
 		user.setUsername(createUserRequest.getUsername());
 		user.setPassword(passwordEncoder.encode(createUserRequest.getPassword()));
 		Cart cart = new Cart();
-		cartRepository.save(cart);
+		cart.setUser(user);
 		user.setCart(cart);
+		// The cart is persisted through the cascade, so both inserts share one transaction and flush
 		userRepository.save(user);
 
 		return ResponseEntity.ok(user);
@@ -0,0 +1,84 @@
+package com.example.demo.datasource;
+
+import com.example.demo.metrics.JdbcStatementCounter;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The primary pool from {@code spring.datasource.*}, a pool per replica URL in
+ * {@code sareeta.datasource.replicas} with the same credentials and pool settings, and the routing
+ * data source in front of them that JPA uses. With no replicas everything goes to the primary.
+ */
+@Configuration
+public class DataSourceConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConditionalOnProperty("sareeta.datasource.local-replication.enabled")
+    public LocalReplicator localReplicator(DataSourceProperties properties,
+                                           @Value("${sareeta.datasource.replicas}") List<String> replicas,
+                                           @Value("${sareeta.datasource.local-replication.lag:250ms}") Duration lag) {
+        if (replicas.size() != 1) {
+            throw new IllegalStateException("Local replication needs exactly one replica URL, got " + replicas);
+        }
+        return new LocalReplicator(replicas.getFirst(), properties.determineUsername(), properties.determinePassword(), lag);
+    }
+
+    @Bean
+    public ReplicationRoutingDataSource routingDataSource(HikariDataSource primaryDataSource,
+                                                          ObjectProvider<LocalReplicator> localReplicator,
+                                                          DataSourceProperties properties, Environment environment,
+                                                          MeterRegistry meterRegistry,
+                                                          @Value("${sareeta.datasource.replicas:}") List<String> urls) {
+        List<HikariDataSource> replicas = new ArrayList<>();
+        for (String url : urls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            HikariDataSource replica = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(url.trim())
+                    .build();
+            Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(replica));
+            replica.setPoolName("replica-" + replicas.size());
+            replica.setReadOnly(true);
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(replica);
+        }
+        LocalReplicator replicator = localReplicator.getIfAvailable();
+        DataSource primary = replicator == null ? primaryDataSource : new ReplicatingDataSource(primaryDataSource, replicator);
+        return new ReplicationRoutingDataSource(primary, replicas);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicationRoutingDataSource routingDataSource, JdbcStatementCounter statementCounter) {
+        // Defers picking a target until the first statement, once the transaction's read-only flag is set
+        return statementCounter.wrap(new LazyConnectionDataSourceProxy(routingDataSource));
+    }
+}
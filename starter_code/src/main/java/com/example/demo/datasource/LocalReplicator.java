@@ -0,0 +1,123 @@
+package com.example.demo.datasource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stand-in for database replication when developing against H2: replays every transaction
+ * committed through a {@link ReplicatingDataSource} on a replica database after a fixed lag, one
+ * transaction at a time and in commit order, like a statement-based replication stream.
+ */
+public class LocalReplicator implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalReplicator.class);
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final long lagMillis;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "local-replicator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Only used from the executor thread
+    private Connection connection;
+
+    public LocalReplicator(String url, String username, String password, Duration lag) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.lagMillis = lag.toMillis();
+    }
+
+    void replicate(List<ReplicatedStatement> transaction) {
+        executor.schedule(() -> apply(transaction), lagMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Blocks until everything committed so far has been applied, so the replica has the schema and
+     * seed data before the application starts serving reads.
+     */
+    @EventListener(ApplicationStartedEvent.class)
+    public void awaitCaughtUp() throws InterruptedException, ExecutionException {
+        // Tasks with the same delay run in submission order
+        executor.schedule(() -> null, lagMillis, TimeUnit.MILLISECONDS).get();
+    }
+
+    private void apply(List<ReplicatedStatement> transaction) {
+        try {
+            if (connection == null) {
+                connection = DriverManager.getConnection(url, username, password);
+                connection.setAutoCommit(false);
+            }
+            try {
+                for (ReplicatedStatement statement : transaction) {
+                    execute(statement);
+                }
+                connection.commit();
+            } catch (SQLException | ReflectiveOperationException e) {
+                connection.rollback();
+                throw e;
+            }
+        } catch (SQLException | ReflectiveOperationException e) {
+            log.error("Could not apply a replicated transaction of {} statements to {}", transaction.size(), url, e);
+        }
+    }
+
+    private void execute(ReplicatedStatement statement) throws SQLException, ReflectiveOperationException {
+        if (statement.parameterSets() == null) {
+            try (Statement plain = connection.createStatement()) {
+                plain.execute(statement.sql());
+            }
+            return;
+        }
+        try (PreparedStatement prepared = connection.prepareStatement(statement.sql())) {
+            for (List<ParameterCall> parameters : statement.parameterSets()) {
+                for (ParameterCall parameter : parameters) {
+                    parameter.setter().invoke(prepared, parameter.args());
+                }
+                prepared.addBatch();
+            }
+            prepared.executeBatch();
+        }
+    }
+
+    @Override
+    public void close() throws SQLException, InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(lagMillis + 5_000, TimeUnit.MILLISECONDS);
+        if (connection != null) {
+            connection.close();
+        }
+    }
+
+    /**
+     * A statement that changed the primary. Plain statements have no parameter sets; prepared ones
+     * have one per execution or batch entry.
+     */
+    record ReplicatedStatement(String sql, List<List<ParameterCall>> parameterSets) {
+    }
+
+    /**
+     * A {@code PreparedStatement.setXxx(index, value...)} call, replayed as is.
+     */
+    record ParameterCall(Method setter, Object[] args) {
+    }
+}
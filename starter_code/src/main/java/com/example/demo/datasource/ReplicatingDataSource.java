@@ -0,0 +1,178 @@
+package com.example.demo.datasource;
+
+import com.example.demo.datasource.LocalReplicator.ParameterCall;
+import com.example.demo.datasource.LocalReplicator.ReplicatedStatement;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Records the statements that change the primary and hands each committed transaction to a
+ * {@link LocalReplicator}. Queries are not recorded, rolled back work is dropped and statements
+ * run outside a transaction are replicated on their own. Savepoints are not supported.
+ */
+public class ReplicatingDataSource extends DelegatingDataSource {
+
+    private final LocalReplicator replicator;
+
+    public ReplicatingDataSource(DataSource primary, LocalReplicator replicator) {
+        super(primary);
+        this.replicator = replicator;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(obtainTargetDataSource().getConnection()));
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return proxy(Connection.class, new ConnectionHandler(obtainTargetDataSource().getConnection(username, password)));
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(ReplicatingDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+        private final List<ReplicatedStatement> pending = new ArrayList<>();
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "createStatement":
+                    return proxy(Statement.class, new StatementHandler(this, (Statement) ReplicatingDataSource.invoke(target, method, args), null));
+                case "prepareStatement":
+                    return proxy(PreparedStatement.class, new StatementHandler(this,
+                            (PreparedStatement) ReplicatingDataSource.invoke(target, method, args), (String) args[0]));
+                case "commit":
+                    target.commit();
+                    flush();
+                    return null;
+                case "rollback":
+                    ReplicatingDataSource.invoke(target, method, args);
+                    if (args == null) {
+                        pending.clear();
+                    }
+                    return null;
+                case "setAutoCommit":
+                    // Switching auto-commit on commits the running transaction
+                    boolean inTransaction = !target.getAutoCommit();
+                    target.setAutoCommit((Boolean) args[0]);
+                    if (inTransaction && (Boolean) args[0]) {
+                        flush();
+                    }
+                    return null;
+                case "close":
+                    pending.clear();
+                    target.close();
+                    return null;
+                default:
+                    return ReplicatingDataSource.invoke(target, method, args);
+            }
+        }
+
+        void record(ReplicatedStatement statement) throws SQLException {
+            if (target.getAutoCommit()) {
+                replicator.replicate(List.of(statement));
+            } else {
+                pending.add(statement);
+            }
+        }
+
+        private void flush() {
+            if (!pending.isEmpty()) {
+                replicator.replicate(List.copyOf(pending));
+                pending.clear();
+            }
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+
+        private final ConnectionHandler connection;
+        private final Statement target;
+        // Null for plain statements
+        private final String sql;
+        private final Map<Integer, ParameterCall> parameters = new TreeMap<>();
+        private final List<List<ParameterCall>> batch = new ArrayList<>();
+        private final List<String> sqlBatch = new ArrayList<>();
+
+        StatementHandler(ConnectionHandler connection, Statement target, String sql) {
+            this.connection = connection;
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = ReplicatingDataSource.invoke(target, method, args);
+            String name = method.getName();
+            boolean noArgs = args == null || args.length == 0;
+            if (sql != null && name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer index) {
+                parameters.put(index, new ParameterCall(method, args.clone()));
+                return result;
+            }
+            switch (name) {
+                case "clearParameters" -> parameters.clear();
+                case "addBatch" -> {
+                    if (noArgs) {
+                        batch.add(List.copyOf(parameters.values()));
+                    } else {
+                        sqlBatch.add((String) args[0]);
+                    }
+                }
+                case "clearBatch" -> {
+                    batch.clear();
+                    sqlBatch.clear();
+                }
+                case "executeBatch", "executeLargeBatch" -> {
+                    if (!batch.isEmpty()) {
+                        connection.record(new ReplicatedStatement(sql, List.copyOf(batch)));
+                    }
+                    for (String batched : sqlBatch) {
+                        connection.record(new ReplicatedStatement(batched, null));
+                    }
+                    batch.clear();
+                    sqlBatch.clear();
+                }
+                case "execute", "executeUpdate", "executeLargeUpdate" -> {
+                    if (noArgs) {
+                        connection.record(new ReplicatedStatement(sql, List.of(List.copyOf(parameters.values()))));
+                    } else {
+                        connection.record(new ReplicatedStatement((String) args[0], null));
+                    }
+                }
+                default -> {
+                }
+            }
+            return result;
+        }
+    }
+}
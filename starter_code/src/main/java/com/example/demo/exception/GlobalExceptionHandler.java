@@ -1,5 +1,7 @@
 package com.example.demo.exception;
 
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -12,4 +14,10 @@ public class GlobalExceptionHandler {
         return ResponseEntity.badRequest()
                 .body(ex.getMessage());
     }
-}
\ No newline at end of file
+
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<String> concurrencyFailureExceptionHandler(ConcurrencyFailureException ex) {
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body("The resource was changed concurrently, please retry");
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.demo.metrics;
+
+import com.example.demo.model.persistence.Item;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Function;
+
+/**
+ * Hit ratios of the second-level cache regions holding the item catalog. Raw hit and miss counts
+ * per region are published by Hibernate's own Micrometer binder.
+ */
+@Component
+public class CatalogCacheMetrics implements MeterBinder {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public CatalogCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        registerHitRatio(registry, statistics, Item.CACHE_REGION,
+                s -> s.getDomainDataRegionStatistics(Item.CACHE_REGION));
+        registerHitRatio(registry, statistics, Item.QUERY_CACHE_REGION,
+                s -> s.getQueryRegionStatistics(Item.QUERY_CACHE_REGION));
+    }
+
+    private static void registerHitRatio(MeterRegistry registry, Statistics statistics, String region,
+                                         Function<Statistics, CacheRegionStatistics> regionStatistics) {
+        Gauge.builder("hibernate.cache.hit.ratio", statistics, s -> hitRatio(regionStatistics.apply(s)))
+                .description("Share of second-level cache lookups answered without going to the database")
+                .tag("region", region)
+                .register(registry);
+    }
+
+    private static double hitRatio(CacheRegionStatistics statistics) {
+        if (statistics == null) {
+            return Double.NaN;
+        }
+        long requests = statistics.getHitCount() + statistics.getMissCount();
+        return requests == 0 ? Double.NaN : (double) statistics.getHitCount() / requests;
+    }
+}
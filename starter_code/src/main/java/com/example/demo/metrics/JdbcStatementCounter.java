@@ -0,0 +1,93 @@
+package com.example.demo.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Counts the JDBC statements prepared on the current thread between {@link #start()} and
+ * {@link #stop()}. Counting is done on the connections of the data source passed through
+ * {@link #wrap(DataSource)}, so statements from Hibernate and from {@code JdbcTemplate} are both
+ * included; work the thread hands to another one is included when wrapped with
+ * {@link #propagate(Supplier)}. Statements prepared outside such a window are passed through
+ * uncounted.
+ */
+public class JdbcStatementCounter {
+
+    private static final ThreadLocal<AtomicInteger> COUNT = new ThreadLocal<>();
+    private static final Set<String> PREPARING = Set.of("prepareStatement", "prepareCall", "createStatement");
+
+    public DataSource wrap(DataSource dataSource) {
+        return new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return counting(super.getConnection());
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return counting(super.getConnection(username, password));
+            }
+        };
+    }
+
+    public void start() {
+        COUNT.set(new AtomicInteger());
+    }
+
+    public int stop() {
+        AtomicInteger count = COUNT.get();
+        COUNT.remove();
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * The task, counting the statements it prepares on whichever thread runs it into the current
+     * thread's count.
+     */
+    public <T> Supplier<T> propagate(Supplier<T> task) {
+        AtomicInteger count = COUNT.get();
+        if (count == null) {
+            return task;
+        }
+        return () -> {
+            AtomicInteger previous = COUNT.get();
+            COUNT.set(count);
+            try {
+                return task.get();
+            } finally {
+                COUNT.set(previous);
+            }
+        };
+    }
+
+    private static Connection counting(Connection connection) {
+        InvocationHandler handler = (proxy, method, args) -> switch (method.getName()) {
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            default -> {
+                if (PREPARING.contains(method.getName())) {
+                    AtomicInteger count = COUNT.get();
+                    if (count != null) {
+                        count.incrementAndGet();
+                    }
+                }
+                try {
+                    yield method.invoke(connection, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(JdbcStatementCounter.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, handler);
+    }
+}
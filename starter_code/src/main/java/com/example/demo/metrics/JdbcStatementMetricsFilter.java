@@ -0,0 +1,62 @@
+package com.example.demo.metrics;
+
+import com.example.demo.security.JWTUtils;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Records how many JDBC statements each request issued, tagged with the matched URI pattern.
+ * Runs ahead of the security filters so their lookups are included, among them the login's user
+ * lookup, which runs on the login pool on the request's behalf.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class JdbcStatementMetricsFilter extends OncePerRequestFilter {
+
+    private final JdbcStatementCounter statementCounter;
+    private final MeterRegistry meterRegistry;
+
+    public JdbcStatementMetricsFilter(JdbcStatementCounter statementCounter, MeterRegistry meterRegistry) {
+        this.statementCounter = statementCounter;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        statementCounter.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            int statements = statementCounter.stop();
+            DistributionSummary.builder("sareeta.jdbc.statements")
+                    .description("JDBC statements prepared while handling a request")
+                    .baseUnit("statements")
+                    .tag("uri", uri(request))
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(statements);
+        }
+    }
+
+    private static String uri(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern != null) {
+            return pattern.toString();
+        }
+        // Login is answered by a security filter, so no handler pattern is ever set for it
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return JWTUtils.LOGIN_URL.equals(path) ? JWTUtils.LOGIN_URL : "UNKNOWN";
+    }
+}
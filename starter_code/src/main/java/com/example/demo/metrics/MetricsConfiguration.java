@@ -0,0 +1,21 @@
+package com.example.demo.metrics;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfiguration {
+
+    // Honours @Timed on the controllers, which Spring MVC no longer does by itself
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    public JdbcStatementCounter jdbcStatementCounter() {
+        return new JdbcStatementCounter();
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.demo.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.metrics.buffering.BufferingApplicationStartup;
+import org.springframework.boot.context.metrics.buffering.StartupTimeline;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Logs where startup time went once the application is ready: the JVM's own start before
+ * {@code main}, each top-level startup phase, the context refresh split by kind of work, and the
+ * slowest beans to create. Bean times include the beans they pulled in. The step timeline is only
+ * recorded when the application is launched through {@code SareetaApplication.main}; the full
+ * timeline is also served by the actuator {@code startup} endpoint.
+ */
+@Component
+public class StartupTimeReport {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupTimeReport.class);
+    private static final String REFRESH = "spring.context.refresh";
+    private static final String BEAN_INSTANTIATE = "spring.beans.instantiate";
+
+    private final int slowestBeans;
+
+    public StartupTimeReport(@Value("${sareeta.startup.report.slowest-beans:10}") int slowestBeans) {
+        this.slowestBeans = slowestBeans;
+    }
+
+    @EventListener
+    public void report(ApplicationReadyEvent event) {
+        Instant jvmStart = Instant.ofEpochMilli(ManagementFactory.getRuntimeMXBean().getStartTime());
+        StringBuilder report = new StringBuilder("Startup took ")
+                .append(millis(Duration.between(jvmStart, Instant.now())))
+                .append(" from JVM start, ").append(millis(event.getTimeTaken())).append(" in the application");
+        if (!(event.getApplicationContext().getApplicationStartup() instanceof BufferingApplicationStartup startup)) {
+            log.info(report.toString());
+            return;
+        }
+        StartupTimeline timeline = startup.getBufferedTimeline();
+        List<StartupTimeline.TimelineEvent> events = timeline.getEvents();
+        line(report, "JVM start to main", Duration.between(jvmStart, timeline.getStartTime()));
+
+        for (StartupTimeline.TimelineEvent step : events) {
+            if (step.getStartupStep().getParentId() != null) {
+                continue;
+            }
+            line(report, step.getStartupStep().getName(), step.getDuration());
+            if (step.getStartupStep().getName().equals(REFRESH)) {
+                long refreshId = step.getStartupStep().getId();
+                Map<String, Duration> byKind = events.stream()
+                        .filter(child -> Long.valueOf(refreshId).equals(child.getStartupStep().getParentId()))
+                        .collect(Collectors.toMap(child -> child.getStartupStep().getName(),
+                                StartupTimeline.TimelineEvent::getDuration, Duration::plus));
+                byKind.entrySet().stream()
+                        .sorted(Map.Entry.<String, Duration>comparingByValue().reversed())
+                        .forEach(kind -> line(report, "  " + kind.getKey(), kind.getValue()));
+            }
+        }
+
+        report.append(String.format("%n  slowest beans"));
+        events.stream()
+                .filter(step -> step.getStartupStep().getName().equals(BEAN_INSTANTIATE))
+                .sorted(Comparator.comparing(StartupTimeline.TimelineEvent::getDuration).reversed())
+                .limit(slowestBeans)
+                .forEach(step -> line(report, "  " + beanName(step.getStartupStep()), step.getDuration()));
+        log.info(report.toString());
+    }
+
+    private static String beanName(StartupStep step) {
+        for (StartupStep.Tag tag : step.getTags()) {
+            if (tag.getKey().equals("beanName")) {
+                // Configuration classes are named after their class; the simple name is enough
+                String name = tag.getValue();
+                return name.substring(name.lastIndexOf('.') + 1);
+            }
+        }
+        return "?";
+    }
+
+    private static void line(StringBuilder report, String name, Duration duration) {
+        report.append(String.format("%n  %-60s %8s", name, millis(duration)));
+    }
+
+    private static String millis(Duration duration) {
+        return duration.toMillis() + " ms";
+    }
+}
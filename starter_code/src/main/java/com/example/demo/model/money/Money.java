@@ -0,0 +1,60 @@
+package com.example.demo.model.money;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * An amount of money held as a whole number of minor units (cents), so sums and products are
+ * plain {@code long} arithmetic. Overflow throws rather than wrapping.
+ */
+@JsonSerialize(using = MoneyJsonSerializer.class)
+@JsonDeserialize(using = MoneyJsonDeserializer.class)
+public record Money(long minorUnits) implements Comparable<Money>, Serializable {
+
+	public static final int SCALE = 2;
+	public static final Money ZERO = new Money(0);
+
+	public static Money ofMinor(long minorUnits) {
+		return minorUnits == 0 ? ZERO : new Money(minorUnits);
+	}
+
+	public static Money of(BigDecimal amount) {
+		return ofMinor(amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+	}
+
+	public static Money of(String amount) {
+		return of(new BigDecimal(amount));
+	}
+
+	public Money plus(Money other) {
+		return ofMinor(Math.addExact(minorUnits, other.minorUnits));
+	}
+
+	public Money minus(Money other) {
+		return ofMinor(Math.subtractExact(minorUnits, other.minorUnits));
+	}
+
+	public Money times(long quantity) {
+		return ofMinor(Math.multiplyExact(minorUnits, quantity));
+	}
+
+	public BigDecimal toBigDecimal() {
+		return BigDecimal.valueOf(minorUnits, SCALE);
+	}
+
+	@Override
+	public int compareTo(Money other) {
+		return Long.compare(minorUnits, other.minorUnits);
+	}
+
+	@Override
+	public String toString() {
+		long units = Math.abs(minorUnits / 100);
+		long cents = Math.abs(minorUnits % 100);
+		return (minorUnits < 0 ? "-" : "") + units + (cents < 10 ? ".0" : ".") + cents;
+	}
+}
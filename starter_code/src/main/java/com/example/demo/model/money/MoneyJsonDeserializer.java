@@ -0,0 +1,24 @@
+package com.example.demo.model.money;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+public class MoneyJsonDeserializer extends StdDeserializer<Money> {
+
+	public MoneyJsonDeserializer() {
+		super(Money.class);
+	}
+
+	@Override
+	public Money deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+		if (p.currentToken() == JsonToken.VALUE_STRING) {
+			return Money.of(new BigDecimal(p.getText().trim()));
+		}
+		return Money.of(p.getDecimalValue());
+	}
+}
@@ -0,0 +1,20 @@
+package com.example.demo.model.money;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+public class MoneyJsonSerializer extends StdSerializer<Money> {
+
+	public MoneyJsonSerializer() {
+		super(Money.class);
+	}
+
+	@Override
+	public void serialize(Money value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+		// Written as a plain JSON number, e.g. 2.99, the same shape BigDecimal produced
+		gen.writeNumber(value.toString());
+	}
+}
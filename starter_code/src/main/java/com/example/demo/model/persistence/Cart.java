@@ -1,49 +1,68 @@
 package com.example.demo.model.persistence;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import com.example.demo.model.money.Money;
+import com.example.demo.model.persistence.converters.MinorUnitsConverter;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.persistence.ManyToMany;
+import jakarta.persistence.OneToMany;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 
 @Entity
 @Table(name = "cart")
 public class Cart {
 	
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_seq")
+	@SequenceGenerator(name = "cart_seq", sequenceName = "cart_seq", allocationSize = 50)
 	@JsonProperty
 	@Column
 	private Long id;
 	
-	@ManyToMany
+	@OneToMany(mappedBy = "cart", cascade = CascadeType.ALL, orphanRemoval = true)
 	@JsonProperty
-	@Column
-    private List<Item> items;
+    private List<CartLine> lines;
 	
 	@OneToOne(mappedBy = "cart")
 	@JsonProperty
     private User user;
 	
-	@Column
-	@JsonProperty
-	private BigDecimal total;
+	// Kept as raw minor units so adding and removing lines is primitive arithmetic
+	@Column(name = "total")
+	@Convert(converter = MinorUnitsConverter.class)
+	private long totalMinorUnits;
+
+	// Checked on every cart write so concurrent writers cannot overwrite each other's changes
+	@Version
+	private long version;
+
+	// Lines keyed by item id, rebuilt from lines on first use
+	@Transient
+	private Map<Long, CartLine> linesByItemId;
 	
-	public BigDecimal getTotal() {
-		return total;
+	@JsonProperty
+	public Money getTotal() {
+		return Money.ofMinor(totalMinorUnits);
 	}
 
-	public void setTotal(BigDecimal total) {
-		this.total = total;
+	@JsonProperty
+	public void setTotal(Money total) {
+		this.totalMinorUnits = total == null ? 0 : total.minorUnits();
 	}
 
 	public User getUser() {
@@ -62,33 +81,75 @@ public class Cart {
 		this.id = id;
 	}
 
-	public List<Item> getItems() {
-		return items;
+	public List<CartLine> getLines() {
+		return lines;
 	}
 
-	public void setItems(List<Item> items) {
-		this.items = items;
+	public void setLines(List<CartLine> lines) {
+		this.lines = lines;
+		this.linesByItemId = null;
 	}
-	
+
+	public int getQuantity(Item item) {
+		CartLine line = linesByItemId().get(item.getId());
+		return line == null ? 0 : line.getQuantity();
+	}
+
 	public void addItem(Item item) {
-		if(items == null) {
-			items = new ArrayList<>();
+		addItem(item, 1);
+	}
+
+	public CartLine addItem(Item item, int quantity) {
+		if(quantity <= 0) {
+			throw new IllegalArgumentException("Quantity must be greater than zero");
 		}
-		items.add(item);
-		if(total == null) {
-			total = new BigDecimal(0);
+		CartLine line = linesByItemId().get(item.getId());
+		// Both sums are checked before anything changes, so an overflow leaves the cart as it was
+		int newQuantity = Math.addExact(line == null ? 0 : line.getQuantity(), quantity);
+		Money unitPrice = line == null ? item.getPrice() : line.getUnitPrice();
+		long newTotal = Math.addExact(totalMinorUnits, Math.multiplyExact(unitPrice.minorUnits(), quantity));
+		if(line == null) {
+			line = new CartLine(this, item, 0, unitPrice);
+			lines.add(line);
+			linesByItemId.put(item.getId(), line);
 		}
-		total = total.add(item.getPrice());
+		line.setQuantity(newQuantity);
+		totalMinorUnits = newTotal;
+		return line;
 	}
-	
+
 	public void removeItem(Item item) {
-		if(items == null) {
-			items = new ArrayList<>();
+		removeItem(item, 1);
+	}
+
+	public void removeItem(Item item, int quantity) {
+		if(quantity <= 0) {
+			throw new IllegalArgumentException("Quantity must be greater than zero");
+		}
+		CartLine line = linesByItemId().get(item.getId());
+		if(line == null) {
+			return;
+		}
+		int removed = Math.min(quantity, line.getQuantity());
+		line.setQuantity(line.getQuantity() - removed);
+		if(line.getQuantity() == 0) {
+			lines.remove(line);
+			linesByItemId.remove(item.getId());
+		}
+		totalMinorUnits = Math.subtractExact(totalMinorUnits,
+				Math.multiplyExact(line.getUnitPrice().minorUnits(), removed));
+	}
+
+	private Map<Long, CartLine> linesByItemId() {
+		if(lines == null) {
+			lines = new ArrayList<>();
 		}
-		items.remove(item);
-		if(total == null) {
-			total = new BigDecimal(0);
+		if(linesByItemId == null) {
+			linesByItemId = new HashMap<>();
+			for(CartLine line : lines) {
+				linesByItemId.put(line.getItem().getId(), line);
+			}
 		}
-		total = total.subtract(item.getPrice());
+		return linesByItemId;
 	}
 }
@@ -0,0 +1,99 @@
+package com.example.demo.model.persistence;
+
+
+import com.example.demo.model.money.Money;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+@Entity
+@Table(name = "cart_line", uniqueConstraints = @UniqueConstraint(columnNames = {"cart_id", "item_id"}))
+public class CartLine {
+
+	@Id
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cart_line_seq")
+	@SequenceGenerator(name = "cart_line_seq", sequenceName = "cart_line_seq", allocationSize = 50)
+	@JsonProperty
+	private Long id;
+
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "cart_id", nullable = false)
+	@JsonIgnore
+	private Cart cart;
+
+	// Lazy so that loading lines does not join item; the item itself comes from the second-level cache
+	@ManyToOne(fetch = FetchType.LAZY)
+	@JoinColumn(name = "item_id", nullable = false)
+	@JsonProperty
+	private Item item;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private int quantity;
+
+	@Column(nullable = false)
+	@JsonProperty
+	private Money unitPrice;
+
+	public CartLine() {
+	}
+
+	public CartLine(Cart cart, Item item, int quantity, Money unitPrice) {
+		this.cart = cart;
+		this.item = item;
+		this.quantity = quantity;
+		this.unitPrice = unitPrice;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public Cart getCart() {
+		return cart;
+	}
+
+	public void setCart(Cart cart) {
+		this.cart = cart;
+	}
+
+	public Item getItem() {
+		return item;
+	}
+
+	public void setItem(Item item) {
+		this.item = item;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public void setQuantity(int quantity) {
+		this.quantity = quantity;
+	}
+
+	public Money getUnitPrice() {
+		return unitPrice;
+	}
+
+	public void setUnitPrice(Money unitPrice) {
+		this.unitPrice = unitPrice;
+	}
+}
@@ -1,25 +1,45 @@
 package com.example.demo.model.persistence;
 
-import java.math.BigDecimal;
+import com.example.demo.model.money.Money;
+import com.example.demo.search.ItemSearchIndexListener;
 
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 @Entity
 @Table(name = "item")
+@EntityListeners(ItemSearchIndexListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Item.CACHE_REGION)
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Item {
 
+	public static final String CACHE_REGION = "item";
+	public static final String QUERY_CACHE_REGION = "item-queries";
+	// Ids below this are left for the catalog rows seeded by data.sql
+	public static final int FIRST_GENERATED_ID = 1000;
+
+
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_seq")
+	@SequenceGenerator(name = "item_seq", sequenceName = "item_seq", allocationSize = 50,
+			initialValue = FIRST_GENERATED_ID)
 	@JsonProperty
 	private Long id;
 	
@@ -29,7 +49,7 @@ public class Item {
 	
 	@Column(nullable = false)
 	@JsonProperty
-	private BigDecimal price;
+	private Money price;
 	
 	@Column(nullable = false)
 	@JsonProperty
@@ -76,11 +96,11 @@ public class Item {
 		this.name = name;
 	}
 
-	public BigDecimal getPrice() {
+	public Money getPrice() {
 		return price;
 	}
 
-	public void setPrice(BigDecimal price) {
+	public void setPrice(Money price) {
 		this.price = price;
 	}
 
@@ -0,0 +1,52 @@
+package com.example.demo.model.persistence;
+
+import java.time.Instant;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * A bearer token that was revoked before it expired, identified by its {@code jti} claim. Rows can
+ * be deleted once the token has expired.
+ */
+@Entity
+@Table(name = "revoked_token", indexes = {
+		@Index(name = "revoked_token_revoked_at", columnList = "revoked_at"),
+		@Index(name = "revoked_token_expires_at", columnList = "expires_at")
+})
+public class RevokedToken {
+
+	@Id
+	@Column(name = "token_id", length = 64)
+	private String tokenId;
+
+	@Column(name = "expires_at", nullable = false)
+	private Instant expiresAt;
+
+	@Column(name = "revoked_at", nullable = false)
+	private Instant revokedAt;
+
+	public RevokedToken() {
+	}
+
+	public RevokedToken(String tokenId, Instant expiresAt, Instant revokedAt) {
+		this.tokenId = tokenId;
+		this.expiresAt = expiresAt;
+		this.revokedAt = revokedAt;
+	}
+
+	public String getTokenId() {
+		return tokenId;
+	}
+
+	public Instant getExpiresAt() {
+		return expiresAt;
+	}
+
+	public Instant getRevokedAt() {
+		return revokedAt;
+	}
+}
@@ -11,25 +11,35 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.OneToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 
 
 @Entity
-@Table(name = "user")
+@Table(name = "user", uniqueConstraints = @UniqueConstraint(name = User.USERNAME_CONSTRAINT, columnNames = "username"))
 public class User {
 
+	public static final String USERNAME_CONSTRAINT = "uk_user_username";
+
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_seq")
+	@SequenceGenerator(name = "user_seq", sequenceName = "user_seq", allocationSize = 50)
 	@JsonProperty
 	private long id;
 	
-	@Column(nullable = false, unique = true)
+	@Column(nullable = false)
 	@JsonProperty
 	private String username;
 
 	@Column(nullable = false)
 	@JsonProperty
 	private String password;
+
+	// Granted only by an existing admin or the startup bootstrap, never through sign up
+	@Column(nullable = false)
+	@JsonIgnore
+	private boolean admin;
 	
 	@OneToOne(cascade = CascadeType.ALL)
     @JoinColumn(name = "cart_id", referencedColumnName = "id")
@@ -67,4 +77,12 @@ public class User {
 	public void setPassword(String password) {
 		this.password = password;
 	}
+
+	public boolean isAdmin() {
+		return admin;
+	}
+
+	public void setAdmin(boolean admin) {
+		this.admin = admin;
+	}
 }
@@ -1,8 +1,10 @@
 package com.example.demo.model.persistence;
 
-import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+
+import com.example.demo.model.money.Money;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
@@ -11,9 +13,9 @@ import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
-import jakarta.persistence.JoinTable;
-import jakarta.persistence.ManyToMany;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -23,15 +25,15 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public class UserOrder {
 
 	@Id
-	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_order_seq")
+	@SequenceGenerator(name = "user_order_seq", sequenceName = "user_order_seq", allocationSize = 50)
 	@JsonProperty
 	@Column
 	private Long id;
 	
-	@ManyToMany(cascade = CascadeType.ALL)
+	@OneToMany(mappedBy = "order", cascade = CascadeType.ALL, orphanRemoval = true)
 	@JsonProperty
-	@Column
-    private List<Item> items;
+    private List<OrderLine> lines;
 	
 	@ManyToOne
 	@JoinColumn(name="user_id", nullable = false, referencedColumnName = "id")
@@ -40,7 +42,12 @@ public class UserOrder {
 	
 	@JsonProperty
 	@Column
-	private BigDecimal total;
+	private Money total;
+
+	// Null for orders placed before it was recorded
+	@JsonProperty
+	@Column(name = "created_at")
+	private Instant createdAt;
 
 	public Long getId() {
 		return id;
@@ -50,12 +57,12 @@ public class UserOrder {
 		this.id = id;
 	}
 
-	public List<Item> getItems() {
-		return items;
+	public List<OrderLine> getLines() {
+		return lines;
 	}
 
-	public void setItems(List<Item> items) {
-		this.items = items;
+	public void setLines(List<OrderLine> lines) {
+		this.lines = lines;
 	}
 
 	public User getUser() {
@@ -66,19 +73,34 @@ public class UserOrder {
 		this.user = user;
 	}
 	
-	public BigDecimal getTotal() {
+	public Money getTotal() {
 		return total;
 	}
 
-	public void setTotal(BigDecimal total) {
+	public void setTotal(Money total) {
 		this.total = total;
 	}
 
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+
+	public void setCreatedAt(Instant createdAt) {
+		this.createdAt = createdAt;
+	}
+
 	public static UserOrder createFromCart(Cart cart) {
 		UserOrder order = new UserOrder();
-		order.setItems(cart.getItems().stream().collect(Collectors.toList()));
+		List<OrderLine> lines = new ArrayList<>();
+		if(cart.getLines() != null) {
+			for(CartLine line : cart.getLines()) {
+				lines.add(new OrderLine(order, line.getItem(), line.getQuantity(), line.getUnitPrice()));
+			}
+		}
+		order.setLines(lines);
 		order.setTotal(cart.getTotal());
 		order.setUser(cart.getUser());
+		order.setCreatedAt(Instant.now());
 		return order;
 	}
 	
@@ -0,0 +1,76 @@
+package com.example.demo.model.persistence;
+
+import java.time.Instant;
+
+import com.example.demo.model.money.Money;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Running totals of a user's orders, updated in the transaction that writes each order so they
+ * can be read with a single row lookup.
+ */
+@Entity
+@Table(name = "user_order_summary")
+public class UserOrderSummary {
+
+	@Id
+	@Column(name = "user_id")
+	@JsonProperty
+	private long userId;
+
+	@Column(name = "order_count", nullable = false)
+	@JsonProperty
+	private long orderCount;
+
+	@Column(name = "total_spend", nullable = false)
+	@JsonProperty
+	private Money totalSpend = Money.ZERO;
+
+	@Column(name = "last_order_at")
+	@JsonProperty
+	private Instant lastOrderAt;
+
+	public UserOrderSummary() {
+	}
+
+	public UserOrderSummary(long userId) {
+		this.userId = userId;
+	}
+
+	public long getUserId() {
+		return userId;
+	}
+
+	public void setUserId(long userId) {
+		this.userId = userId;
+	}
+
+	public long getOrderCount() {
+		return orderCount;
+	}
+
+	public void setOrderCount(long orderCount) {
+		this.orderCount = orderCount;
+	}
+
+	public Money getTotalSpend() {
+		return totalSpend;
+	}
+
+	public void setTotalSpend(Money totalSpend) {
+		this.totalSpend = totalSpend;
+	}
+
+	public Instant getLastOrderAt() {
+		return lastOrderAt;
+	}
+
+	public void setLastOrderAt(Instant lastOrderAt) {
+		this.lastOrderAt = lastOrderAt;
+	}
+}
@@ -0,0 +1,25 @@
+package com.example.demo.model.persistence.converters;
+
+import java.math.BigDecimal;
+
+import com.example.demo.model.money.Money;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Maps a raw minor-unit {@code long} field onto the same decimal column type {@link MoneyConverter} uses.
+ */
+@Converter
+public class MinorUnitsConverter implements AttributeConverter<Long, BigDecimal> {
+
+	@Override
+	public BigDecimal convertToDatabaseColumn(Long minorUnits) {
+		return minorUnits == null ? null : BigDecimal.valueOf(minorUnits, Money.SCALE);
+	}
+
+	@Override
+	public Long convertToEntityAttribute(BigDecimal amount) {
+		return amount == null ? 0L : Money.of(amount).minorUnits();
+	}
+}
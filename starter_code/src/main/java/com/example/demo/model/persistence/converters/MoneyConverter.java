@@ -0,0 +1,22 @@
+package com.example.demo.model.persistence.converters;
+
+import java.math.BigDecimal;
+
+import com.example.demo.model.money.Money;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+@Converter(autoApply = true)
+public class MoneyConverter implements AttributeConverter<Money, BigDecimal> {
+
+	@Override
+	public BigDecimal convertToDatabaseColumn(Money money) {
+		return money == null ? null : money.toBigDecimal();
+	}
+
+	@Override
+	public Money convertToEntityAttribute(BigDecimal amount) {
+		return amount == null ? null : Money.of(amount);
+	}
+}
@@ -1,13 +1,49 @@
 package com.example.demo.model.persistence.repositories;
 
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.hibernate.jpa.HibernateHints;
+
+import jakarta.persistence.QueryHint;
 
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.User;
 
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
+@Transactional(readOnly = true)
 public interface CartRepository extends JpaRepository<Cart, Long> {
 	Cart findByUser(User user);
+
+	@EntityGraph(attributePaths = {"lines", "user"})
+	List<Cart> findByIdIn(Collection<Long> ids);
+
+	// Adding to a line the cart already has is done in place, so concurrent adds queue on the row
+	// locks instead of failing each other's version checks. The cart row is updated first, the order
+	// Hibernate flushes a cart and its lines in, and not at all when the line is missing or the
+	// quantity would overflow; the line update must follow in the same transaction. Both name the
+	// tables they touch, or Hibernate would empty the whole second-level cache after each.
+	@Modifying(flushAutomatically = true, clearAutomatically = true)
+	@Transactional
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "cart"))
+	@Query(value = "update cart set total = total + :quantity * (select l.unit_price from cart_line l"
+			+ " where l.cart_id = :cartId and l.item_id = :itemId), version = version + 1"
+			+ " where id = :cartId and exists (select 1 from cart_line l where l.cart_id = :cartId"
+			+ " and l.item_id = :itemId and l.quantity <= 2147483647 - :quantity)", nativeQuery = true)
+	int addToExistingLineTotal(long cartId, long itemId, int quantity);
+
+	@Modifying(clearAutomatically = true)
+	@Transactional
+	@QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "cart_line"))
+	@Query(value = "update cart_line set quantity = quantity + :quantity where cart_id = :cartId"
+			+ " and item_id = :itemId", nativeQuery = true)
+	int addToExistingLineQuantity(long cartId, long itemId, int quantity);
 }
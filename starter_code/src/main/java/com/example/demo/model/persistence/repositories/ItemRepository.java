@@ -2,13 +2,33 @@ package com.example.demo.model.persistence.repositories;
 
 import java.util.List;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.example.demo.model.persistence.Item;
+
+import jakarta.persistence.QueryHint;
+
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
+@Transactional(readOnly = true)
 public interface ItemRepository extends JpaRepository<Item, Long> {
+	@QueryHints({
+			@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+			@QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Item.QUERY_CACHE_REGION)
+	})
 	List<Item> findByName(String name);
 
+	@Override
+	@QueryHints({
+			@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+			@QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = Item.QUERY_CACHE_REGION)
+	})
+	List<Item> findAll();
+
+	List<Item> findByIdGreaterThanOrderByIdAsc(long id, Limit limit);
 }
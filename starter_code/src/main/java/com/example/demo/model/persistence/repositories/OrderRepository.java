@@ -1,14 +1,42 @@
 package com.example.demo.model.persistence.repositories;
 
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.example.demo.model.persistence.OrderLine;
 import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.responses.OrderSummary;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
+@Transactional(readOnly = true)
 public interface OrderRepository extends JpaRepository<UserOrder, Long> {
+	@EntityGraph(attributePaths = {"lines", "lines.item"})
 	List<UserOrder> findByUser(User user);
+
+	@EntityGraph(attributePaths = {"lines", "lines.item"})
+	List<UserOrder> findByUserId(long userId);
+
+	boolean existsByIdAndUserId(long id, long userId);
+
+	@Query("select new com.example.demo.model.responses.OrderSummary(o.id, o.total, count(l), coalesce(sum(l.quantity), 0)) "
+			+ "from UserOrder o left join o.lines l "
+			+ "where o.user.id = :userId and o.id < :before "
+			+ "group by o.id, o.total order by o.id desc")
+	List<OrderSummary> findSummariesByUserId(@Param("userId") long userId, @Param("before") long before, Limit limit);
+
+	@Query("select l from OrderLine l join fetch l.item where l.order.id in :orderIds order by l.order.id, l.id")
+	List<OrderLine> findLinesByOrderIds(@Param("orderIds") Collection<Long> orderIds);
+
+	@Query("select l from OrderLine l join fetch l.item "
+			+ "where l.order.id = :orderId and l.order.user.id = :userId order by l.id")
+	List<OrderLine> findLinesByOrderIdAndUserId(@Param("orderId") long orderId, @Param("userId") long userId);
 }
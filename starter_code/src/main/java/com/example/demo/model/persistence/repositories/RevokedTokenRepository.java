@@ -0,0 +1,26 @@
+package com.example.demo.model.persistence.repositories;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.example.demo.model.persistence.RevokedToken;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+@Transactional(readOnly = true)
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, String> {
+
+	@Query("select t from RevokedToken t where t.revokedAt >= :since and t.expiresAt > :now")
+	List<RevokedToken> findRevokedSince(@Param("since") Instant since, @Param("now") Instant now);
+
+	@Modifying
+	@Transactional
+	@Query("delete from RevokedToken t where t.expiresAt <= :now")
+	int deleteExpired(@Param("now") Instant now);
+}
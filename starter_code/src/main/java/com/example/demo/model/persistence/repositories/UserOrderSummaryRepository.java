@@ -0,0 +1,44 @@
+package com.example.demo.model.persistence.repositories;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.example.demo.model.persistence.UserOrderSummary;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+@Repository
+@Transactional(readOnly = true)
+public interface UserOrderSummaryRepository extends JpaRepository<UserOrderSummary, Long> {
+
+	// Increments in SQL so concurrent orders of one user never overwrite each other's counts
+	@Modifying
+	@Transactional
+	@Query(value = "update user_order_summary set order_count = order_count + :orders, "
+			+ "total_spend = total_spend + :spend, "
+			+ "last_order_at = case when last_order_at is null or last_order_at < :orderedAt "
+			+ "then :orderedAt else last_order_at end "
+			+ "where user_id = :userId", nativeQuery = true)
+	int addOrders(@Param("userId") long userId, @Param("orders") int orders, @Param("spend") BigDecimal spend,
+			@Param("orderedAt") Instant orderedAt);
+
+	@Modifying
+	@Transactional
+	@Query(value = "insert into user_order_summary (user_id, order_count, total_spend, last_order_at) "
+			+ "select user_id, count(*), sum(total), max(created_at) from user_order "
+			+ "where user_id = :userId group by user_id", nativeQuery = true)
+	int insertFromOrders(@Param("userId") long userId);
+
+	@Modifying
+	@Transactional
+	@Query(value = "insert into user_order_summary (user_id, order_count, total_spend, last_order_at) "
+			+ "select o.user_id, count(*), sum(o.total), max(o.created_at) from user_order o "
+			+ "where not exists (select 1 from user_order_summary s where s.user_id = o.user_id) "
+			+ "group by o.user_id", nativeQuery = true)
+	int insertMissingFromOrders();
+}
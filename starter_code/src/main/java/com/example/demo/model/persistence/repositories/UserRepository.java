@@ -1,11 +1,36 @@
 package com.example.demo.model.persistence.repositories;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 
 import com.example.demo.model.persistence.User;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
+@Transactional(readOnly = true)
 public interface UserRepository extends JpaRepository<User, Long> {
 	User findByUsername(String username);
+
+	@Query("select u.username from User u where u.username in :usernames")
+	List<String> findExistingUsernames(Collection<String> usernames);
+
+	// Only replaces the hash the caller last read, so it never undoes a change made in between
+	@Modifying
+	@Transactional
+	@Query("update User u set u.password = :newPassword where u.username = :username and u.password = :oldPassword")
+	int updatePassword(String username, String oldPassword, String newPassword);
+
+	@Modifying
+	@Transactional
+	@Query("update User u set u.admin = :admin where u.username = :username")
+	int updateAdmin(String username, boolean admin);
+
+	// Users per BCrypt cost, read from the "$2a$10$" prefix of the stored hashes: [cost, count] rows
+	@Query("select substring(u.password, 5, 2), count(u) from User u group by substring(u.password, 5, 2)")
+	List<Object[]> countByPasswordCost();
 }
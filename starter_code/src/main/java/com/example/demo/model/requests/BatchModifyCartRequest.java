@@ -0,0 +1,30 @@
+package com.example.demo.model.requests;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class BatchModifyCartRequest {
+
+	@JsonProperty
+	private String username;
+
+	@JsonProperty
+	private List<CartOperation> operations;
+
+	public String getUsername() {
+		return username;
+	}
+
+	public void setUsername(String username) {
+		this.username = username;
+	}
+
+	public List<CartOperation> getOperations() {
+		return operations;
+	}
+
+	public void setOperations(List<CartOperation> operations) {
+		this.operations = operations;
+	}
+}
@@ -0,0 +1,31 @@
+package com.example.demo.model.responses;
+
+import java.util.List;
+
+import com.example.demo.model.persistence.Cart;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class BatchModifyCartResponse {
+
+	@JsonProperty
+	private Cart cart;
+
+	@JsonProperty
+	private List<CartOperationResult> results;
+
+	public BatchModifyCartResponse() {
+	}
+
+	public BatchModifyCartResponse(Cart cart, List<CartOperationResult> results) {
+		this.cart = cart;
+		this.results = results;
+	}
+
+	public Cart getCart() {
+		return cart;
+	}
+
+	public List<CartOperationResult> getResults() {
+		return results;
+	}
+}
@@ -0,0 +1,30 @@
+package com.example.demo.model.responses;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class BulkCreateUsersResponse {
+
+	@JsonProperty
+	private int created;
+
+	@JsonProperty
+	private List<UserCreationResult> results;
+
+	public BulkCreateUsersResponse() {
+	}
+
+	public BulkCreateUsersResponse(int created, List<UserCreationResult> results) {
+		this.created = created;
+		this.results = results;
+	}
+
+	public int getCreated() {
+		return created;
+	}
+
+	public List<UserCreationResult> getResults() {
+		return results;
+	}
+}
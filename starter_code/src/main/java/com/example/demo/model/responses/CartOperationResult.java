@@ -0,0 +1,57 @@
+package com.example.demo.model.responses;
+
+import com.example.demo.model.requests.CartOperation;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class CartOperationResult {
+
+	public enum Status {
+		APPLIED, ITEM_NOT_FOUND, INVALID_OPERATION
+	}
+
+	@JsonProperty
+	private int index;
+
+	@JsonProperty
+	private CartOperation.Action action;
+
+	@JsonProperty
+	private long itemId;
+
+	@JsonProperty
+	private Status status;
+
+	@JsonProperty
+	private int quantityInCart;
+
+	public CartOperationResult() {
+	}
+
+	public CartOperationResult(int index, CartOperation operation, Status status, int quantityInCart) {
+		this.index = index;
+		this.action = operation.getAction();
+		this.itemId = operation.getItemId();
+		this.status = status;
+		this.quantityInCart = quantityInCart;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public CartOperation.Action getAction() {
+		return action;
+	}
+
+	public long getItemId() {
+		return itemId;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public int getQuantityInCart() {
+		return quantityInCart;
+	}
+}
@@ -0,0 +1,129 @@
+package com.example.demo.model.responses;
+
+import java.time.Instant;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class CatalogImportResponse {
+
+	public enum Status {
+		RUNNING, COMPLETED, FAILED
+	}
+
+	public static class Rejection {
+
+		@JsonProperty
+		private long line;
+
+		@JsonProperty
+		private String reason;
+
+		public Rejection() {
+		}
+
+		public Rejection(long line, String reason) {
+			this.line = line;
+			this.reason = reason;
+		}
+
+		public long getLine() {
+			return line;
+		}
+
+		public String getReason() {
+			return reason;
+		}
+	}
+
+	@JsonProperty
+	private long importId;
+
+	@JsonProperty
+	private String username;
+
+	@JsonProperty
+	private Status status;
+
+	@JsonProperty
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private String failure;
+
+	@JsonProperty
+	private long rowsRead;
+
+	@JsonProperty
+	private long rowsWritten;
+
+	@JsonProperty
+	private long rowsRejected;
+
+	// The first rejected rows only; rowsRejected counts them all
+	@JsonProperty
+	private List<Rejection> rejections;
+
+	@JsonProperty
+	private Instant startedAt;
+
+	@JsonProperty
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private Instant finishedAt;
+
+	public CatalogImportResponse() {
+	}
+
+	public CatalogImportResponse(long importId, String username, Status status, String failure, long rowsRead,
+			long rowsWritten, long rowsRejected, List<Rejection> rejections, Instant startedAt, Instant finishedAt) {
+		this.importId = importId;
+		this.username = username;
+		this.status = status;
+		this.failure = failure;
+		this.rowsRead = rowsRead;
+		this.rowsWritten = rowsWritten;
+		this.rowsRejected = rowsRejected;
+		this.rejections = rejections;
+		this.startedAt = startedAt;
+		this.finishedAt = finishedAt;
+	}
+
+	public long getImportId() {
+		return importId;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public String getFailure() {
+		return failure;
+	}
+
+	public long getRowsRead() {
+		return rowsRead;
+	}
+
+	public long getRowsWritten() {
+		return rowsWritten;
+	}
+
+	public long getRowsRejected() {
+		return rowsRejected;
+	}
+
+	public List<Rejection> getRejections() {
+		return rejections;
+	}
+
+	public Instant getStartedAt() {
+		return startedAt;
+	}
+
+	public Instant getFinishedAt() {
+		return finishedAt;
+	}
+}
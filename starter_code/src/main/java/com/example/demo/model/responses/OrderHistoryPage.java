@@ -0,0 +1,31 @@
+package com.example.demo.model.responses;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class OrderHistoryPage {
+
+	@JsonProperty
+	private List<OrderSummary> orders;
+
+	// Pass as "before" to fetch the next, older page; null when there are no more orders
+	@JsonProperty
+	private Long nextCursor;
+
+	public OrderHistoryPage() {
+	}
+
+	public OrderHistoryPage(List<OrderSummary> orders, Long nextCursor) {
+		this.orders = orders;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<OrderSummary> getOrders() {
+		return orders;
+	}
+
+	public Long getNextCursor() {
+		return nextCursor;
+	}
+}
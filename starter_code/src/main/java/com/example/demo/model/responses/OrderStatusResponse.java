@@ -0,0 +1,32 @@
+package com.example.demo.model.responses;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class OrderStatusResponse {
+
+	public enum Status {
+		QUEUED, PERSISTED, FAILED
+	}
+
+	@JsonProperty
+	private long orderId;
+
+	@JsonProperty
+	private Status status;
+
+	public OrderStatusResponse() {
+	}
+
+	public OrderStatusResponse(long orderId, Status status) {
+		this.orderId = orderId;
+		this.status = status;
+	}
+
+	public long getOrderId() {
+		return orderId;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+}
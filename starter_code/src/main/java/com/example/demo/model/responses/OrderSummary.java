@@ -0,0 +1,61 @@
+package com.example.demo.model.responses;
+
+import java.util.List;
+
+import com.example.demo.model.money.Money;
+import com.example.demo.model.persistence.OrderLine;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class OrderSummary {
+
+	@JsonProperty
+	private Long id;
+
+	@JsonProperty
+	private Money total;
+
+	@JsonProperty
+	private long lineCount;
+
+	@JsonProperty
+	private long itemCount;
+
+	@JsonProperty
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private List<OrderLine> lines;
+
+	public OrderSummary() {
+	}
+
+	public OrderSummary(Long id, Money total, Long lineCount, Long itemCount) {
+		this.id = id;
+		this.total = total;
+		this.lineCount = lineCount;
+		this.itemCount = itemCount;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public Money getTotal() {
+		return total;
+	}
+
+	public long getLineCount() {
+		return lineCount;
+	}
+
+	public long getItemCount() {
+		return itemCount;
+	}
+
+	public List<OrderLine> getLines() {
+		return lines;
+	}
+
+	public void setLines(List<OrderLine> lines) {
+		this.lines = lines;
+	}
+}
@@ -0,0 +1,59 @@
+package com.example.demo.model.responses;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+public class UserCreationResult {
+
+	public enum Status {
+		CREATED, DUPLICATE_USERNAME, INVALID
+	}
+
+	@JsonProperty
+	private int index;
+
+	@JsonProperty
+	private String username;
+
+	@JsonProperty
+	private Status status;
+
+	@JsonProperty
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private Long userId;
+
+	@JsonProperty
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private String reason;
+
+	public UserCreationResult() {
+	}
+
+	public UserCreationResult(int index, String username, Status status, Long userId, String reason) {
+		this.index = index;
+		this.username = username;
+		this.status = status;
+		this.userId = userId;
+		this.reason = reason;
+	}
+
+	public int getIndex() {
+		return index;
+	}
+
+	public String getUsername() {
+		return username;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public Long getUserId() {
+		return userId;
+	}
+
+	public String getReason() {
+		return reason;
+	}
+}
@@ -0,0 +1,51 @@
+package com.example.demo.search;
+
+import java.util.Arrays;
+
+/**
+ * Growable {@code int} array, so postings for a large catalog are not boxed.
+ */
+final class IntList {
+
+    private int[] values = new int[4];
+    private int size;
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Index of the first value at or after {@code from} that is at least {@code key}, or
+     * {@link #size()} if there is none. Values must be ascending. Gallops forward from {@code from}
+     * first, since callers usually advance by a short distance.
+     */
+    int ceiling(int from, int key) {
+        int low = from;
+        int bound = 1;
+        while (low + bound < size && values[low + bound] < key) {
+            low += bound;
+            bound <<= 1;
+        }
+        int high = Math.min(low + bound, size);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,511 @@
+package com.example.demo.search;
+
+import com.example.demo.model.persistence.Item;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-memory inverted index over item names and descriptions. Every query token is matched as an
+ * exact term, as a prefix through a trie over the vocabulary and, when the exact term is unknown,
+ * fuzzily through a trigram index over the vocabulary. Results must match every token and are
+ * ranked by match quality, field (name over description) and term rarity.
+ *
+ * <p>Searches share a read lock; {@link #put(Item)} and {@link #remove(long)} take the write lock.
+ * Removed and replaced documents are tombstoned and the index compacts itself once they outnumber
+ * live ones. A rebuild is built aside without the lock; puts and removes made meanwhile are applied
+ * to the live index and also recorded, then replayed onto the new index before it is swapped in.
+ */
+@Component
+public class ItemSearchIndex {
+
+    static final int MAX_PREFIX_EXPANSIONS = 64;
+    static final int MAX_FUZZY_EXPANSIONS = 32;
+    static final int MIN_TOMBSTONES_BEFORE_COMPACTION = 1024;
+
+    private static final float EXACT_WEIGHT = 1.0f;
+    private static final float PREFIX_WEIGHT = 0.6f;
+    private static final float FUZZY_WEIGHT = 0.4f;
+    private static final float NAME_WEIGHT = 2.0f;
+    private static final float MIN_TRIGRAM_SIMILARITY = 0.4f;
+    private static final int MIN_FUZZY_LENGTH = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock rebuildLock = new ReentrantLock();
+    private Index index = new Index();
+    // Guarded by the write lock; null when no rebuild is running
+    private List<UnaryOperator<Index>> changesDuringRebuild;
+
+    /**
+     * Replaces the whole index with the items {@code items} reads. Changes are recorded from before
+     * the read starts, so none made while the items are read or indexed are lost.
+     */
+    public void rebuild(Supplier<? extends Iterable<Item>> items) {
+        rebuildLock.lock();
+        try {
+            lock.writeLock().lock();
+            try {
+                changesDuringRebuild = new ArrayList<>();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            Index rebuilt = null;
+            try {
+                Index building = new Index();
+                for (Item item : items.get()) {
+                    building.add(copyOf(item));
+                }
+                rebuilt = building;
+            } finally {
+                lock.writeLock().lock();
+                try {
+                    // A failed read keeps the current index, which already has every change applied
+                    if (rebuilt != null) {
+                        for (UnaryOperator<Index> change : changesDuringRebuild) {
+                            rebuilt = change.apply(rebuilt);
+                        }
+                        index = rebuilt;
+                    }
+                    changesDuringRebuild = null;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    public void put(Item item) {
+        Item copy = copyOf(item);
+        apply(index -> {
+            // An update tombstones the item's previous document, so it counts towards compaction too
+            boolean replaced = index.remove(copy.getId());
+            index.add(copy);
+            return replaced ? compactIfSparse(index) : index;
+        });
+    }
+
+    public void remove(long itemId) {
+        apply(index -> index.remove(itemId) ? compactIfSparse(index) : index);
+    }
+
+    // Document slots held, live and tombstoned
+    int documentSlots() {
+        lock.readLock().lock();
+        try {
+            return index.docs.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.docByItemId.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code limit} items matching every token of {@code query}, best match first.
+     */
+    public List<Item> search(String query, int limit) {
+        Set<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return index.search(tokens, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Index compactIfSparse(Index index) {
+        if (index.tombstones <= MIN_TOMBSTONES_BEFORE_COMPACTION || index.tombstones <= index.docByItemId.size()) {
+            return index;
+        }
+        Index compacted = new Index();
+        index.docs.forEach(item -> {
+            if (item != null) {
+                compacted.add(item);
+            }
+        });
+        return compacted;
+    }
+
+    private void apply(UnaryOperator<Index> change) {
+        lock.writeLock().lock();
+        try {
+            index = change.apply(index);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static Item copyOf(Item item) {
+        Item copy = new Item();
+        copy.setId(item.getId());
+        copy.setName(item.getName());
+        copy.setDescription(item.getDescription());
+        copy.setPrice(item.getPrice());
+        return copy;
+    }
+
+    private static final class Index {
+
+        private final Map<String, Integer> termIds = new HashMap<>();
+        private final List<String> terms = new ArrayList<>();
+        // Per term, the documents containing it as (doc << 1 | 1 when it occurs in the name)
+        private final List<IntList> postings = new ArrayList<>();
+        private final Trie trie = new Trie();
+        private final Map<String, IntList> termsByTrigram = new HashMap<>();
+        // Indexed by document number; null once the item is removed or replaced
+        private final List<Item> docs = new ArrayList<>();
+        private final Map<Long, Integer> docByItemId = new HashMap<>();
+        private int tombstones;
+
+        void add(Item item) {
+            int doc = docs.size();
+            docs.add(item);
+            docByItemId.put(item.getId(), doc);
+            Set<String> nameTerms = tokenize(item.getName());
+            Set<String> allTerms = new LinkedHashSet<>(nameTerms);
+            allTerms.addAll(tokenize(item.getDescription()));
+            for (String term : allTerms) {
+                postings.get(termId(term)).add(doc << 1 | (nameTerms.contains(term) ? 1 : 0));
+            }
+        }
+
+        boolean remove(long itemId) {
+            Integer doc = docByItemId.remove(itemId);
+            if (doc == null) {
+                return false;
+            }
+            docs.set(doc, null);
+            tombstones++;
+            return true;
+        }
+
+        private int termId(String term) {
+            Integer existing = termIds.get(term);
+            if (existing != null) {
+                return existing;
+            }
+            int termId = terms.size();
+            termIds.put(term, termId);
+            terms.add(term);
+            postings.add(new IntList());
+            trie.put(term, termId);
+            for (String trigram : trigrams(term)) {
+                termsByTrigram.computeIfAbsent(trigram, key -> new IntList()).add(termId);
+            }
+            return termId;
+        }
+
+        List<Item> search(Set<String> tokens, int limit) {
+            // The most selective token drives the intersection; the others are only probed at its documents
+            TokenMatches[] matches = tokens.stream()
+                    .map(token -> new TokenMatches(expand(token)))
+                    .sorted(Comparator.comparingLong(TokenMatches::cost))
+                    .toArray(TokenMatches[]::new);
+            float maxScore = 0;
+            for (TokenMatches tokenMatches : matches) {
+                maxScore += tokenMatches.maxScore;
+            }
+
+            PriorityQueue<Hit> best = new PriorityQueue<>(Hit.RANKING.reversed());
+            int target = 0;
+            candidates:
+            while (true) {
+                int doc = matches[0].advance(target);
+                if (doc < 0) {
+                    break;
+                }
+                float score = matches[0].score;
+                for (int i = 1; i < matches.length; i++) {
+                    int other = matches[i].advance(doc);
+                    if (other < 0) {
+                        break candidates;
+                    }
+                    if (other != doc) {
+                        target = other;
+                        continue candidates;
+                    }
+                    score += matches[i].score;
+                }
+                best.add(new Hit(doc, score));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+                // Documents are visited in ascending order and ties rank the lower one first, so once
+                // every kept hit has the best possible score nothing later can displace it
+                if (best.size() == limit && best.peek().score >= maxScore) {
+                    break;
+                }
+                target = doc + 1;
+            }
+            List<Hit> ranked = new ArrayList<>(best);
+            ranked.sort(Hit.RANKING);
+            return ranked.stream().map(hit -> docs.get(hit.doc)).toList();
+        }
+
+        /**
+         * Vocabulary terms a query token matches, with the weight of each kind of match.
+         */
+        private Map<Integer, Float> expand(String token) {
+            Map<Integer, Float> matches = new HashMap<>();
+            Integer exact = termIds.get(token);
+            if (exact != null) {
+                matches.put(exact, EXACT_WEIGHT);
+            }
+            IntList prefixed = new IntList();
+            trie.collectPrefixed(token, MAX_PREFIX_EXPANSIONS, prefixed);
+            for (int i = 0; i < prefixed.size(); i++) {
+                matches.putIfAbsent(prefixed.get(i), PREFIX_WEIGHT);
+            }
+            if (exact == null && token.length() >= MIN_FUZZY_LENGTH) {
+                fuzzyMatches(token).forEach(matches::putIfAbsent);
+            }
+            return matches;
+        }
+
+        private Map<Integer, Float> fuzzyMatches(String token) {
+            List<String> tokenTrigrams = trigrams(token);
+            Map<Integer, Integer> shared = new HashMap<>();
+            for (String trigram : tokenTrigrams) {
+                IntList termsWithTrigram = termsByTrigram.get(trigram);
+                if (termsWithTrigram != null) {
+                    for (int i = 0; i < termsWithTrigram.size(); i++) {
+                        shared.merge(termsWithTrigram.get(i), 1, Integer::sum);
+                    }
+                }
+            }
+            int maxEdits = token.length() <= 4 ? 1 : 2;
+            Map<Integer, Float> matches = new HashMap<>();
+            shared.entrySet().stream()
+                    .map(entry -> Map.entry(entry.getKey(), 2f * entry.getValue()
+                            / (tokenTrigrams.size() + trigrams(terms.get(entry.getKey())).size())))
+                    .filter(entry -> entry.getValue() >= MIN_TRIGRAM_SIMILARITY)
+                    .filter(entry -> withinEdits(token, terms.get(entry.getKey()), maxEdits))
+                    .sorted(Map.Entry.<Integer, Float>comparingByValue().reversed())
+                    .limit(MAX_FUZZY_EXPANSIONS)
+                    .forEach(entry -> matches.put(entry.getKey(), FUZZY_WEIGHT * entry.getValue()));
+            return matches;
+        }
+
+        /**
+         * Live documents matched by any vocabulary term of one query token, in ascending order, each
+         * scored by its best matching term. Merges the terms' postings through a heap of cursors.
+         */
+        private final class TokenMatches {
+
+            private final IntList[] termPostings;
+            private final float[] weights;
+            private final int[] positions;
+            private final int[] heap;
+            private int heapSize;
+            private final float maxScore;
+            private int current = -1;
+            private float score;
+
+            TokenMatches(Map<Integer, Float> expansion) {
+                int terms = expansion.size();
+                termPostings = new IntList[terms];
+                weights = new float[terms];
+                positions = new int[terms];
+                heap = new int[terms];
+                int liveDocs = docByItemId.size();
+                float max = 0;
+                int term = 0;
+                for (Map.Entry<Integer, Float> match : expansion.entrySet()) {
+                    IntList list = postings.get(match.getKey());
+                    termPostings[term] = list;
+                    // Rarer terms say more about a document than common ones
+                    weights[term] = match.getValue() * (float) Math.log(1 + (double) liveDocs / Math.max(1, list.size()));
+                    max = Math.max(max, weights[term] * NAME_WEIGHT);
+                    if (list.size() > 0) {
+                        heap[heapSize] = term;
+                        siftUp(heapSize++);
+                    }
+                    term++;
+                }
+                maxScore = max;
+            }
+
+            long cost() {
+                long cost = 0;
+                for (IntList list : termPostings) {
+                    cost += list.size();
+                }
+                return cost;
+            }
+
+            /**
+             * The first matching document at or after {@code target}, or -1 once there are none.
+             */
+            int advance(int target) {
+                if (current >= target) {
+                    return current;
+                }
+                while (heapSize > 0) {
+                    int top = heap[0];
+                    if (head(top) >>> 1 < target) {
+                        positions[top] = termPostings[top].ceiling(positions[top] + 1, target << 1);
+                        restoreTop(top);
+                        continue;
+                    }
+                    int doc = head(top) >>> 1;
+                    float docScore = 0;
+                    while (heapSize > 0 && head(heap[0]) >>> 1 == doc) {
+                        int cursor = heap[0];
+                        float weight = (head(cursor) & 1) == 1 ? weights[cursor] * NAME_WEIGHT : weights[cursor];
+                        docScore = Math.max(docScore, weight);
+                        positions[cursor]++;
+                        restoreTop(cursor);
+                    }
+                    if (docs.get(doc) == null) {
+                        target = doc + 1;
+                        continue;
+                    }
+                    current = doc;
+                    score = docScore;
+                    return doc;
+                }
+                current = Integer.MAX_VALUE;
+                return -1;
+            }
+
+            private int head(int cursor) {
+                return termPostings[cursor].get(positions[cursor]);
+            }
+
+            private void restoreTop(int cursor) {
+                if (positions[cursor] >= termPostings[cursor].size()) {
+                    heap[0] = heap[--heapSize];
+                }
+                siftDown(0);
+            }
+
+            private void siftUp(int index) {
+                while (index > 0) {
+                    int parent = (index - 1) >>> 1;
+                    if (head(heap[parent]) <= head(heap[index])) {
+                        return;
+                    }
+                    swap(parent, index);
+                    index = parent;
+                }
+            }
+
+            private void siftDown(int index) {
+                while (true) {
+                    int smallest = index;
+                    int left = 2 * index + 1;
+                    if (left < heapSize && head(heap[left]) < head(heap[smallest])) {
+                        smallest = left;
+                    }
+                    if (left + 1 < heapSize && head(heap[left + 1]) < head(heap[smallest])) {
+                        smallest = left + 1;
+                    }
+                    if (smallest == index) {
+                        return;
+                    }
+                    swap(index, smallest);
+                    index = smallest;
+                }
+            }
+
+            private void swap(int a, int b) {
+                int swap = heap[a];
+                heap[a] = heap[b];
+                heap[b] = swap;
+            }
+        }
+    }
+
+    static List<String> trigrams(String term) {
+        String padded = "$$" + term + "$";
+        List<String> trigrams = new ArrayList<>(padded.length() - 2);
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    /**
+     * Levenshtein distance of at most {@code maxEdits}, giving up as soon as a row exceeds it.
+     */
+    static boolean withinEdits(String a, String b, int maxEdits) {
+        if (Math.abs(a.length() - b.length()) > maxEdits) {
+            return false;
+        }
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int substitution = previous[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                current[j] = Math.min(substitution, Math.min(previous[j], current[j - 1]) + 1);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxEdits) {
+                return false;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()] <= maxEdits;
+    }
+
+    private record Hit(int doc, float score) {
+
+        static final Comparator<Hit> RANKING = Comparator.comparingDouble((Hit hit) -> -hit.score)
+                .thenComparingInt(Hit::doc);
+    }
+}
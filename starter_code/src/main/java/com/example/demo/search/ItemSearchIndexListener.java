@@ -0,0 +1,48 @@
+package com.example.demo.search;
+
+import com.example.demo.model.persistence.Item;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps {@link ItemSearchIndex} in step with item writes made through JPA. Changes reach the index
+ * only once their transaction commits, so a rollback never leaves phantom search results.
+ */
+@Component
+public class ItemSearchIndexListener {
+
+    private final ItemSearchIndex searchIndex;
+
+    public ItemSearchIndexListener(ItemSearchIndex searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSave(Item item) {
+        afterCommit(() -> searchIndex.put(item));
+    }
+
+    @PostRemove
+    public void onRemove(Item item) {
+        long itemId = item.getId();
+        afterCommit(() -> searchIndex.remove(itemId));
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
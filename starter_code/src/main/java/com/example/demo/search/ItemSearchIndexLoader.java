@@ -0,0 +1,54 @@
+package com.example.demo.search;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fills {@link ItemSearchIndex} from the database once the application is up. Kept apart from the
+ * index so the index, which the JPA entity listener needs, does not depend on a repository.
+ */
+@Component
+public class ItemSearchIndexLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(ItemSearchIndexLoader.class);
+    private static final int PAGE_SIZE = 1000;
+
+    private final ItemRepository itemRepository;
+    private final ItemSearchIndex searchIndex;
+
+    public ItemSearchIndexLoader(ItemRepository itemRepository, ItemSearchIndex searchIndex) {
+        this.itemRepository = itemRepository;
+        this.searchIndex = searchIndex;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        // Read inside the rebuild, which records item changes from before the read starts
+        searchIndex.rebuild(this::readAll);
+        log.info("Indexed {} items for search", searchIndex.size());
+    }
+
+    private List<Item> readAll() {
+        List<Item> items = new ArrayList<>();
+        long lastId = Long.MIN_VALUE;
+        List<Item> page;
+        // Keyset pages, each read in its own short session so loaded entities do not pile up
+        do {
+            page = itemRepository.findByIdGreaterThanOrderByIdAsc(lastId, Limit.of(PAGE_SIZE));
+            items.addAll(page);
+            if (!page.isEmpty()) {
+                lastId = page.getLast().getId();
+            }
+        } while (page.size() == PAGE_SIZE);
+        return items;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.demo.search;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Character trie over the index vocabulary. Children are kept in sorted parallel arrays rather than
+ * maps to keep the per-node footprint small for large vocabularies.
+ */
+final class Trie {
+
+    private static final char[] NO_KEYS = new char[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    private final Node root = new Node();
+
+    void put(String term, int termId) {
+        Node node = root;
+        for (int i = 0; i < term.length(); i++) {
+            node = node.childOrCreate(term.charAt(i));
+        }
+        node.termId = termId;
+    }
+
+    /**
+     * Adds the ids of at most {@code max} terms starting with {@code prefix}, shortest terms first.
+     */
+    void collectPrefixed(String prefix, int max, IntList into) {
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.child(prefix.charAt(i));
+        }
+        if (node == null) {
+            return;
+        }
+        ArrayDeque<Node> queue = new ArrayDeque<>();
+        queue.add(node);
+        int collected = 0;
+        while (!queue.isEmpty() && collected < max) {
+            Node next = queue.poll();
+            if (next.termId >= 0) {
+                into.add(next.termId);
+                collected++;
+            }
+            for (int i = 0; i < next.childCount; i++) {
+                queue.add(next.children[i]);
+            }
+        }
+    }
+
+    private static final class Node {
+
+        private char[] keys = NO_KEYS;
+        private Node[] children = NO_CHILDREN;
+        private int childCount;
+        private int termId = -1;
+
+        Node child(char key) {
+            int index = Arrays.binarySearch(keys, 0, childCount, key);
+            return index >= 0 ? children[index] : null;
+        }
+
+        Node childOrCreate(char key) {
+            int index = Arrays.binarySearch(keys, 0, childCount, key);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertAt = -index - 1;
+            if (childCount == keys.length) {
+                int capacity = Math.max(2, childCount * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(keys, insertAt, keys, insertAt + 1, childCount - insertAt);
+            System.arraycopy(children, insertAt, children, insertAt + 1, childCount - insertAt);
+            Node child = new Node();
+            keys[insertAt] = key;
+            children[insertAt] = child;
+            childCount++;
+            return child;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.interfaces.Claim;
+import com.auth0.jwt.interfaces.DecodedJWT;
+
+import java.security.Principal;
+
+/**
+ * Principal placed in the security context by {@link JWTVerificationFilter}. The ids come from
+ * signed token claims; they are null for tokens issued before the claims were added.
+ */
+public record AuthenticatedUser(String username, Long userId, Long cartId) implements Principal {
+
+    public static AuthenticatedUser fromToken(DecodedJWT jwt) {
+        return new AuthenticatedUser(jwt.getSubject(),
+                longClaim(jwt.getClaim(JWTUtils.USER_ID_CLAIM)),
+                longClaim(jwt.getClaim(JWTUtils.CART_ID_CLAIM)));
+    }
+
+    @Override
+    public String getName() {
+        return username;
+    }
+
+    public boolean isUser(String username) {
+        return this.username.equals(username);
+    }
+
+    private static Long longClaim(Claim claim) {
+        return claim.isNull() ? null : claim.asLong();
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.demo.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+
+/**
+ * Size and TTL bounded cache in front of {@link UserDetailsServiceImpl}. Concurrent misses for the
+ * same username wait on a single repository load; unknown usernames are never cached.
+ */
+@Primary
+@Service
+public class CachingUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
+
+    private final UserDetailsServiceImpl delegate;
+    private final Cache<String, UserDetails> cache;
+
+    public CachingUserDetailsService(UserDetailsServiceImpl delegate,
+                                     @Value("${sareeta.security.user-cache.max-size:10000}") long maximumSize,
+                                     @Value("${sareeta.security.user-cache.ttl:5m}") Duration ttl,
+                                     MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userDetails");
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        UserDetails cached = cache.get(username, delegate::loadUserByUsername);
+        // Authentication erases the credentials of the principal it returns, so never hand out the cached instance
+        return copyOf(cached);
+    }
+
+    // The next load reads the re-hashed password instead of the cached one, which would be re-hashed again
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        UserDetails updated = delegate.updatePassword(user, newPassword);
+        cache.invalidate(user.getUsername());
+        return updated;
+    }
+
+    public void evict(String username) {
+        cache.invalidate(username);
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    private static UserDetails copyOf(UserDetails userDetails) {
+        if (userDetails instanceof SareetaUserDetails details) {
+            return new SareetaUserDetails(details.getUsername(), details.getPassword(), details.getAuthorities(),
+                    details.getUserId(), details.getCartId());
+        }
+        return User.withUserDetails(userDetails).build();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.demo.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+/**
+ * BCrypt at a strength chosen for the machine it runs on. A stored hash of any other cost, higher
+ * or lower, is reported as needing an upgrade, so that successful logins re-hash it at this
+ * strength.
+ */
+public class CalibratedBCryptPasswordEncoder extends BCryptPasswordEncoder {
+
+    private static final Logger log = LoggerFactory.getLogger(CalibratedBCryptPasswordEncoder.class);
+    private static final String CALIBRATION_PASSWORD = "calibration password";
+
+    private final int strength;
+
+    public CalibratedBCryptPasswordEncoder(int strength) {
+        super(strength);
+        this.strength = strength;
+    }
+
+    /**
+     * The highest strength from {@code minStrength} to {@code maxStrength} whose hash takes no
+     * longer than {@code target} here, or {@code minStrength} when even that is slower.
+     */
+    public static int calibrate(Duration target, int minStrength, int maxStrength) {
+        // The first hashes run in the interpreter; cheap ones get the JIT going before any timing
+        BCryptPasswordEncoder warmUp = new BCryptPasswordEncoder(4);
+        for (int i = 0; i < 50; i++) {
+            warmUp.encode(CALIBRATION_PASSWORD);
+        }
+        int strength = minStrength;
+        long nanos = timeHash(strength);
+        // Each step of strength doubles the work, so stop before the step that would pass the target
+        while (strength < maxStrength && nanos * 2 <= target.toNanos()) {
+            strength++;
+            nanos = timeHash(strength);
+        }
+        if (nanos > target.toNanos()) {
+            log.warn("BCrypt strength {} takes {} ms here, over the {} ms target; not going below it",
+                    strength, nanos / 1_000_000, target.toMillis());
+        } else {
+            log.info("BCrypt strength {} takes {} ms here, target {} ms", strength, nanos / 1_000_000,
+                    target.toMillis());
+        }
+        return strength;
+    }
+
+    public int getStrength() {
+        return strength;
+    }
+
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        int cost = costOf(encodedPassword);
+        return cost < 0 ? super.upgradeEncoding(encodedPassword) : cost != strength;
+    }
+
+    /**
+     * The cost of a hash in the {@code $2a$10$...} format, or -1 for anything else.
+     */
+    static int costOf(String encodedPassword) {
+        if (encodedPassword == null || encodedPassword.length() < 7 || encodedPassword.charAt(0) != '$'
+                || encodedPassword.charAt(3) != '$' || encodedPassword.charAt(6) != '$') {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(encodedPassword, 4, 6, 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    // Best of two, as one hash can be slowed by a GC pause or another process
+    private static long timeHash(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 2; i++) {
+            long start = System.nanoTime();
+            encoder.encode(CALIBRATION_PASSWORD);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+}
@@ -1,13 +1,24 @@
 package com.example.demo.security;
 
+import com.example.demo.concurrent.Bulkhead;
+import com.example.demo.concurrent.BulkheadFullException;
+import com.example.demo.metrics.JdbcStatementCounter;
 import com.example.demo.model.persistence.User;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
@@ -16,27 +27,71 @@ import java.io.IOException;
 public class JWTAuthenticationFilter extends UsernamePasswordAuthenticationFilter {
 
     private final AuthenticationManager authManager;
+    private final Bulkhead loginBulkhead;
+    private final MeterRegistry meterRegistry;
+    private final JdbcStatementCounter statementCounter;
 
-    public JWTAuthenticationFilter(AuthenticationManager authManager) {
+    public JWTAuthenticationFilter(AuthenticationManager authManager, Bulkhead loginBulkhead,
+                                   MeterRegistry meterRegistry, JdbcStatementCounter statementCounter) {
         this.authManager = authManager;
+        this.loginBulkhead = loginBulkhead;
+        this.meterRegistry = meterRegistry;
+        this.statementCounter = statementCounter;
     }
 
     @Override
     public Authentication attemptAuthentication(HttpServletRequest request, HttpServletResponse response) {
+        User credentials;
         try {
-            User credentials = new ObjectMapper().readValue(request.getInputStream(), User.class);
-            return authManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(credentials.getUsername(),
-                            credentials.getPassword()));
+            credentials = new ObjectMapper().readValue(request.getInputStream(), User.class);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
+
+        UsernamePasswordAuthenticationToken authRequest = new UsernamePasswordAuthenticationToken(
+                credentials.getUsername(), credentials.getPassword());
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try {
+            // The BCrypt compare runs on the login pool so a burst of logins cannot take every request thread
+            Authentication authentication = loginBulkhead.call(
+                    statementCounter.propagate(() -> authManager.authenticate(authRequest)));
+            outcome = "success";
+            return authentication;
+        } catch (BulkheadFullException e) {
+            outcome = "rejected";
+            throw new LoginCapacityExceededException(e.getMessage(), e);
+        } finally {
+            sample.stop(Timer.builder("sareeta.security.login")
+                    .description("Time to authenticate a login, including the wait for the login pool")
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
     }
 
     @Override
     protected void successfulAuthentication(HttpServletRequest request, HttpServletResponse response,
                                             FilterChain chain, Authentication authResult) {
-        String token = JWTUtils.generateToken(((UserDetails) authResult.getPrincipal()).getUsername());
+        String token;
+        if (authResult.getPrincipal() instanceof SareetaUserDetails userDetails) {
+            token = JWTUtils.generateToken(userDetails.getUsername(), userDetails.getUserId(), userDetails.getCartId(),
+                    AuthorityUtils.authorityListToSet(userDetails.getAuthorities()).stream().sorted().toList());
+        } else {
+            token = JWTUtils.generateToken(((UserDetails) authResult.getPrincipal()).getUsername());
+        }
         response.addHeader(JWTUtils.HEADER_STRING, JWTUtils.TOKEN_PREFIX + token);
     }
+
+    @Override
+    protected void unsuccessfulAuthentication(HttpServletRequest request, HttpServletResponse response,
+                                              AuthenticationException failed) throws IOException, ServletException {
+        if (failed instanceof LoginCapacityExceededException) {
+            SecurityContextHolder.clearContext();
+            response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+        super.unsuccessfulAuthentication(request, response, failed);
+    }
 }
@@ -1,9 +1,14 @@
 package com.example.demo.security;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.interfaces.DecodedJWT;
 
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
 
 public class JWTUtils {
 
@@ -13,18 +18,50 @@ public class JWTUtils {
     public static final String HEADER_STRING = "Authorization";
     public static final String SIGN_UP_URL = "/api/user/create";
     public static final String LOGIN_URL = "/login";
+    public static final String USER_ID_CLAIM = "uid";
+    public static final String CART_ID_CLAIM = "cid";
+    public static final String ROLES_CLAIM = "roles";
+    public static final String ADMIN_ROLE = "ROLE_ADMIN";
+
+    // Algorithm and JWTVerifier are immutable and thread-safe, so one instance serves every request
+    private static final Algorithm ALGORITHM = Algorithm.HMAC512(SECRET.getBytes());
+    private static final JWTVerifier VERIFIER = JWT.require(ALGORITHM).build();
 
     public static String generateToken(String username) {
-        return JWT.create()
+        return generateToken(username, null, null);
+    }
+
+    public static String generateToken(String username, Long userId, Long cartId) {
+        return generateToken(username, userId, cartId, List.of());
+    }
+
+    public static String generateToken(String username, Long userId, Long cartId, List<String> roles) {
+        // The jti gives each token an identity of its own, so one token can be revoked
+        JWTCreator.Builder builder = JWT.create()
+                .withJWTId(UUID.randomUUID().toString())
                 .withSubject(username)
-                .withExpiresAt(new Date(System.currentTimeMillis() + EXPIRATION_TIME))
-                .sign(Algorithm.HMAC512(SECRET.getBytes()));
+                .withExpiresAt(new Date(System.currentTimeMillis() + EXPIRATION_TIME));
+        if (userId != null) {
+            builder.withClaim(USER_ID_CLAIM, userId);
+        }
+        if (cartId != null) {
+            builder.withClaim(CART_ID_CLAIM, cartId);
+        }
+        if (!roles.isEmpty()) {
+            builder.withClaim(ROLES_CLAIM, roles);
+        }
+        return builder.sign(ALGORITHM);
+    }
+
+    public static DecodedJWT verifyToken(String token) {
+        return VERIFIER.verify(stripPrefix(token));
     }
 
     public static String getUsernameFromToken(String token) {
-        return JWT.require(Algorithm.HMAC512(SECRET.getBytes()))
-                .build()
-                .verify(token.replace(TOKEN_PREFIX, ""))
-                .getSubject();
+        return verifyToken(token).getSubject();
+    }
+
+    public static String stripPrefix(String token) {
+        return token.startsWith(TOKEN_PREFIX) ? token.substring(TOKEN_PREFIX.length()) : token;
     }
 }
@@ -1,23 +1,39 @@
 package com.example.demo.security;
 
+import com.auth0.jwt.interfaces.DecodedJWT;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.List;
 
 @Component
 public class JWTVerificationFilter extends BasicAuthenticationFilter {
 
-    public JWTVerificationFilter(AuthenticationManager authManager) {
+    private final VerifiedTokenCache tokenCache;
+    private final TokenRevocationList revocations;
+    private final Timer verificationTimer;
+
+    public JWTVerificationFilter(AuthenticationManager authManager, VerifiedTokenCache tokenCache,
+                                 TokenRevocationList revocations, MeterRegistry meterRegistry) {
         super(authManager);
+        this.tokenCache = tokenCache;
+        this.revocations = revocations;
+        this.verificationTimer = Timer.builder("sareeta.security.token.verification")
+                .description("Time to verify a bearer token and build the authentication")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
     }
 
     @Override
@@ -31,15 +47,22 @@ public class JWTVerificationFilter extends BasicAuthenticationFilter {
             return;
         }
 
-        UsernamePasswordAuthenticationToken authentication = getAuthentication(header);
+        UsernamePasswordAuthenticationToken authentication = verificationTimer.record(() -> getAuthentication(header));
         SecurityContextHolder.getContext().setAuthentication(authentication);
         chain.doFilter(request, response);
     }
 
     private UsernamePasswordAuthenticationToken getAuthentication(String token) {
-        String username = JWTUtils.getUsernameFromToken(token);
-        return (username != null)
-                ? new UsernamePasswordAuthenticationToken(username, null, new ArrayList<>())
+        DecodedJWT jwt = tokenCache.verify(token);
+        // A revoked token is still cached as verified, so this is checked on every request
+        return (jwt.getSubject() != null && !revocations.isRevoked(jwt))
+                ? new UsernamePasswordAuthenticationToken(AuthenticatedUser.fromToken(jwt), null, authorities(jwt))
                 : null;
     }
+
+    // Roles are signed into the token at login, so they hold until it expires or is revoked
+    private static List<GrantedAuthority> authorities(DecodedJWT jwt) {
+        List<String> roles = jwt.getClaim(JWTUtils.ROLES_CLAIM).asList(String.class);
+        return roles == null ? AuthorityUtils.NO_AUTHORITIES : AuthorityUtils.createAuthorityList(roles);
+    }
 }
@@ -0,0 +1,10 @@
+package com.example.demo.security;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+public class LoginCapacityExceededException extends AuthenticationServiceException {
+
+    public LoginCapacityExceededException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
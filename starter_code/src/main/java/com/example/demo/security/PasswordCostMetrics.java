@@ -0,0 +1,93 @@
+package com.example.demo.security;
+
+import com.example.demo.model.persistence.repositories.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes how many stored password hashes there are of each BCrypt cost, as
+ * {@code sareeta.security.bcrypt.stored-cost} tagged with the cost, and the strength new hashes
+ * are made with. Hashes of other costs are re-hashed as their users log in, so the distribution
+ * shows how far that has got. Counting groups the whole user table, so it runs every
+ * {@code cost-metrics-interval} rather than on each scrape.
+ */
+@Component
+public class PasswordCostMetrics implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordCostMetrics.class);
+
+    private final UserRepository userRepository;
+    private final Duration interval;
+    private final MultiGauge storedCosts;
+    private volatile ScheduledExecutorService refresher;
+
+    public PasswordCostMetrics(UserRepository userRepository, BCryptPasswordEncoder passwordEncoder,
+                               MeterRegistry meterRegistry,
+                               @Value("${sareeta.security.bcrypt.cost-metrics-interval:5m}") Duration interval) {
+        this.userRepository = userRepository;
+        this.interval = interval;
+        this.storedCosts = MultiGauge.builder("sareeta.security.bcrypt.stored-cost")
+                .description("Stored password hashes, by BCrypt cost")
+                .baseUnit("users")
+                .register(meterRegistry);
+        if (passwordEncoder instanceof CalibratedBCryptPasswordEncoder calibrated) {
+            Gauge.builder("sareeta.security.bcrypt.strength", calibrated::getStrength)
+                    .description("BCrypt cost of newly made password hashes")
+                    .register(meterRegistry);
+        }
+    }
+
+    public void refresh() {
+        List<Object[]> counts = userRepository.countByPasswordCost();
+        storedCosts.register(counts.stream()
+                .<MultiGauge.Row<?>>map(row ->
+                        MultiGauge.Row.of(Tags.of("cost", String.valueOf(row[0])), (Number) row[1]))
+                .toList(), true);
+    }
+
+    @Override
+    public void start() {
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "password-cost-metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService running = refresher;
+        refresher = null;
+        if (running != null) {
+            running.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return refresher != null;
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Counting stored password costs failed, retrying in {}", interval, e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.demo.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import java.util.Collection;
+
+public class SareetaUserDetails extends User {
+
+    private final long userId;
+    private final Long cartId;
+
+    public SareetaUserDetails(String username, String password, Collection<? extends GrantedAuthority> authorities,
+                              long userId, Long cartId) {
+        super(username, password, authorities);
+        this.userId = userId;
+        this.cartId = cartId;
+    }
+
+    public long getUserId() {
+        return userId;
+    }
+
+    public Long getCartId() {
+        return cartId;
+    }
+}
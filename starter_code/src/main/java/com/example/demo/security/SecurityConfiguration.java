@@ -1,5 +1,11 @@
 package com.example.demo.security;
 
+import com.example.demo.concurrent.Bulkhead;
+import com.example.demo.metrics.JdbcStatementCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -12,30 +18,70 @@ import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
 @Configuration
 @EnableWebSecurity
 public class SecurityConfiguration {
 
-    private final UserDetailsServiceImpl userDetailsService;
+    private final CachingUserDetailsService userDetailsService;
     private final BCryptPasswordEncoder bCryptPasswordEncoder;
+    private final VerifiedTokenCache tokenCache;
+    private final TokenRevocationList revocations;
 
-    public SecurityConfiguration(UserDetailsServiceImpl userDetailsService, BCryptPasswordEncoder bCryptPasswordEncoder) {
+    public SecurityConfiguration(CachingUserDetailsService userDetailsService,
+                                 BCryptPasswordEncoder bCryptPasswordEncoder, VerifiedTokenCache tokenCache,
+                                 TokenRevocationList revocations) {
         this.userDetailsService = userDetailsService;
         this.bCryptPasswordEncoder = bCryptPasswordEncoder;
+        this.tokenCache = tokenCache;
+        this.revocations = revocations;
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public Bulkhead loginBulkhead(@Value("${sareeta.security.login-pool.threads:0}") int threads,
+                                  @Value("${sareeta.security.login-pool.queue-capacity:64}") int queueCapacity,
+                                  MeterRegistry meterRegistry) {
+        // BCrypt is CPU bound, so by default the pool gets one thread per core
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        return new Bulkhead("login", poolSize, queueCapacity, meterRegistry);
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool passwordHashingPool(@Value("${sareeta.user.bulk.hash-threads:0}") int threads,
+                                            MeterRegistry meterRegistry) {
+        // Bulk user creation hashes on its own pool so it cannot fill the login queue; work stealing
+        // keeps every worker busy until the last hash of a request is done
+        int parallelism = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("password-hash-" + thread.getPoolIndex());
+            return thread;
+        }, null, false);
+        new ExecutorServiceMetrics(pool, "password-hash", Tags.empty()).bindTo(meterRegistry);
+        return pool;
     }
 
     @Bean
-    public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain securityFilterChain(HttpSecurity http, Bulkhead loginBulkhead,
+                                                   MeterRegistry meterRegistry,
+                                                   JdbcStatementCounter statementCounter) throws Exception {
         return http
                 .csrf(AbstractHttpConfigurer::disable)
                 .authorizeHttpRequests(registry -> {
                     registry.requestMatchers(HttpMethod.POST, JWTUtils.SIGN_UP_URL,
                             JWTUtils.LOGIN_URL).permitAll();
+                    // Scraped by Prometheus and probed by the platform, neither of which holds a user token
+                    registry.requestMatchers(HttpMethod.GET, "/actuator/health", "/actuator/prometheus").permitAll();
+                    registry.requestMatchers("/api/admin/**").hasAuthority(JWTUtils.ADMIN_ROLE);
                     registry.anyRequest().authenticated();
 
                 })
-                .addFilter(new JWTAuthenticationFilter(authenticationManager(http)))
-                .addFilter(new JWTVerificationFilter(authenticationManager(http)))
+                .addFilter(new JWTAuthenticationFilter(authenticationManager(http), loginBulkhead, meterRegistry,
+                        statementCounter))
+                .addFilter(new JWTVerificationFilter(authenticationManager(http), tokenCache, revocations,
+                        meterRegistry))
                 .sessionManagement((var session) -> {
                     session.sessionCreationPolicy(SessionCreationPolicy.STATELESS);
                 })
@@ -47,6 +93,9 @@ public class SecurityConfiguration {
         AuthenticationManagerBuilder authenticationManagerBuilder =
                 http.getSharedObject(AuthenticationManagerBuilder.class);
 
+        // The shared builder's default parent resolves to this very bean, so a failed login would be
+        // handed to itself over and over until the stack ran out
+        authenticationManagerBuilder.parentAuthenticationManager(null);
         authenticationManagerBuilder.userDetailsService(userDetailsService)
                 .passwordEncoder(bCryptPasswordEncoder);
 
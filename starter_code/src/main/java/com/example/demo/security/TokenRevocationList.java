@@ -0,0 +1,196 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.example.demo.model.persistence.RevokedToken;
+import com.example.demo.model.persistence.repositories.RevokedTokenRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tokens revoked before they expire, by {@code jti}. Revocations are stored in the
+ * {@code revoked_token} table and mirrored in memory: a Bloom filter answers the common "not
+ * revoked" case with a few array reads and no locking, and only a token the filter may have seen
+ * is looked up in the exact set behind it.
+ *
+ * <p>Revocations made on this instance apply at once; those made on other instances are picked up
+ * every {@code refresh-interval} by reading only rows revoked since the last refresh. Expired
+ * revocations are dropped from memory and from the table, and the filter is rebuilt once enough of
+ * its entries are gone or it holds more than it was sized for. Tokens issued without a
+ * {@code jti} cannot be revoked and stay valid until they expire.
+ */
+@Component
+public class TokenRevocationList implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenRevocationList.class);
+
+    // Rows are read again this far back, so a revocation whose transaction committed after a
+    // later one had been read is not missed
+    private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+    private static final Duration CLEANUP_INTERVAL = Duration.ofHours(1);
+
+    private final RevokedTokenRepository repository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration refreshInterval;
+    private final long expectedRevocations;
+    private final double falsePositiveRate;
+    private final Map<String, Instant> revoked = new ConcurrentHashMap<>();
+    private final Counter falsePositives;
+    private volatile BloomFilter filter;
+    private volatile ScheduledExecutorService refresher;
+    private Instant watermark = Instant.EPOCH;
+    // Entries dropped since the filter was last built; their bits are still set
+    private long dropped;
+
+    public TokenRevocationList(RevokedTokenRepository repository, PlatformTransactionManager transactionManager,
+                               MeterRegistry meterRegistry,
+                               @Value("${sareeta.security.revocation.refresh-interval:5s}") Duration refreshInterval,
+                               @Value("${sareeta.security.revocation.expected-revocations:100000}") long expectedRevocations,
+                               @Value("${sareeta.security.revocation.false-positive-rate:0.01}") double falsePositiveRate) {
+        this.repository = repository;
+        // Read-write, so refreshes read the primary rather than a replica that may be behind
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.refreshInterval = refreshInterval;
+        this.expectedRevocations = expectedRevocations;
+        this.falsePositiveRate = falsePositiveRate;
+        this.filter = new BloomFilter(expectedRevocations, falsePositiveRate);
+        this.falsePositives = Counter.builder("sareeta.security.revocation.false-positives")
+                .description("Tokens the Bloom filter flagged that were not revoked")
+                .register(meterRegistry);
+        Gauge.builder("sareeta.security.revocation.size", revoked, Map::size)
+                .description("Unexpired revoked tokens held in memory")
+                .register(meterRegistry);
+    }
+
+    public boolean isRevoked(DecodedJWT jwt) {
+        String tokenId = jwt.getId();
+        if (tokenId == null || !filter.mightContain(tokenId)) {
+            return false;
+        }
+        if (revoked.containsKey(tokenId)) {
+            return true;
+        }
+        falsePositives.increment();
+        return false;
+    }
+
+    public void revoke(DecodedJWT jwt) {
+        String tokenId = jwt.getId();
+        if (tokenId == null) {
+            throw new IllegalArgumentException("Token has no id and cannot be revoked");
+        }
+        Instant expiresAt = jwt.getExpiresAt() == null
+                ? Instant.now().plusMillis(JWTUtils.EXPIRATION_TIME)
+                : jwt.getExpiresAt().toInstant();
+        transactionTemplate.executeWithoutResult(status ->
+                repository.save(new RevokedToken(tokenId, expiresAt, Instant.now())));
+        add(tokenId, expiresAt);
+    }
+
+    @Override
+    public void start() {
+        refresh();
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-revocations");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refreshQuietly, refreshInterval.toMillis(),
+                refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+        refresher.scheduleWithFixedDelay(this::deleteExpiredQuietly, CLEANUP_INTERVAL.toMillis(),
+                CLEANUP_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        ScheduledExecutorService running = refresher;
+        refresher = null;
+        if (running != null) {
+            running.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return refresher != null;
+    }
+
+    // Loaded before the web server starts taking requests
+    @Override
+    public int getPhase() {
+        return SmartLifecycle.DEFAULT_PHASE - 4096;
+    }
+
+    void refresh() {
+        Instant now = Instant.now();
+        Instant since = watermark.equals(Instant.EPOCH) ? Instant.EPOCH : watermark.minus(REFRESH_OVERLAP);
+        Instant latest = watermark;
+        for (RevokedToken token : transactionTemplate.execute(status -> repository.findRevokedSince(since, now))) {
+            add(token.getTokenId(), token.getExpiresAt());
+            if (token.getRevokedAt().isAfter(latest)) {
+                latest = token.getRevokedAt();
+            }
+        }
+        watermark = latest;
+        dropExpired(now);
+    }
+
+    // Writes are rare, so they take a lock; reads never do
+    private synchronized void add(String tokenId, Instant expiresAt) {
+        if (revoked.putIfAbsent(tokenId, expiresAt) != null) {
+            return;
+        }
+        filter.put(tokenId);
+        if (revoked.size() > filter.expectedInsertions()) {
+            rebuild();
+        }
+    }
+
+    private synchronized void dropExpired(Instant now) {
+        int before = revoked.size();
+        revoked.values().removeIf(expiresAt -> !expiresAt.isAfter(now));
+        dropped += before - revoked.size();
+        if (dropped > filter.expectedInsertions() / 2) {
+            rebuild();
+        }
+    }
+
+    private void rebuild() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedRevocations, revoked.size() * 2L), falsePositiveRate);
+        revoked.keySet().forEach(rebuilt::put);
+        filter = rebuilt;
+        dropped = 0;
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Refreshing revoked tokens failed, retrying in {}", refreshInterval, e);
+        }
+    }
+
+    private void deleteExpiredQuietly() {
+        try {
+            int deleted = repository.deleteExpired(Instant.now());
+            log.debug("Deleted {} expired token revocations", deleted);
+        } catch (RuntimeException e) {
+            log.warn("Deleting expired token revocations failed", e);
+        }
+    }
+}
@@ -1,16 +1,19 @@
 package com.example.demo.security;
 
-import com.example.demo.model.persistence.User;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.persistence.User;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Collections;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
 
     private final UserRepository userRepository;
 
@@ -18,7 +21,10 @@ public class UserDetailsServiceImpl implements UserDetailsService {
         this.userRepository = userRepository;
     }
 
+    // Read-write so the lookup goes to the primary: a login right after sign-up must find the account
+    // even when the replicas are behind
     @Override
+    @Transactional
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
         User user = userRepository.findByUsername(username);
 
@@ -26,7 +32,22 @@ public class UserDetailsServiceImpl implements UserDetailsService {
             throw new UsernameNotFoundException(username);
         }
 
-        return new org.springframework.security.core.userdetails.User(user.getUsername(),
-                user.getPassword(), Collections.emptyList());
+        return new SareetaUserDetails(user.getUsername(), user.getPassword(),
+                user.isAdmin() ? AuthorityUtils.createAuthorityList(JWTUtils.ADMIN_ROLE) : Collections.emptyList(),
+                user.getId(), user.getCart() != null ? user.getCart().getId() : null);
+    }
+
+    // Called by the authentication provider after a successful login, with the password re-hashed
+    // because the stored hash was not at the encoder's strength
+    @Override
+    public UserDetails updatePassword(UserDetails user, String newPassword) {
+        userRepository.updatePassword(user.getUsername(), user.getPassword(), newPassword);
+        if (user instanceof SareetaUserDetails details) {
+            return new SareetaUserDetails(details.getUsername(), newPassword, details.getAuthorities(),
+                    details.getUserId(), details.getCartId());
+        }
+        return org.springframework.security.core.userdetails.User.withUserDetails(user)
+                .password(newPassword)
+                .build();
     }
 }
@@ -0,0 +1,86 @@
+package com.example.demo.security;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remembers tokens whose signature has already been checked, keyed by a SHA-256 digest of the
+ * token so the raw bearer value is never held. Entries expire at the token's own {@code exp}.
+ */
+@Component
+public class VerifiedTokenCache {
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private final boolean enabled;
+    private final Cache<String, DecodedJWT> cache;
+
+    public VerifiedTokenCache(@Value("${sareeta.security.token-cache.enabled:true}") boolean enabled,
+                              @Value("${sareeta.security.token-cache.max-size:10000}") long maximumSize) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new TokenExpiry())
+                .build();
+    }
+
+    public DecodedJWT verify(String token) {
+        if (!enabled) {
+            return JWTUtils.verifyToken(token);
+        }
+        return cache.get(digest(JWTUtils.stripPrefix(token)), key -> JWTUtils.verifyToken(token));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    private static String digest(String token) {
+        byte[] hash = SHA_256.get().digest(token.getBytes(StandardCharsets.US_ASCII));
+        return Base64.getEncoder().encodeToString(hash);
+    }
+
+    private static class TokenExpiry implements Expiry<String, DecodedJWT> {
+
+        @Override
+        public long expireAfterCreate(String key, DecodedJWT jwt, long currentTime) {
+            Date expiresAt = jwt.getExpiresAt();
+            if (expiresAt == null) {
+                return Long.MAX_VALUE;
+            }
+            long remaining = expiresAt.getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(remaining, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, DecodedJWT jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, DecodedJWT jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates the first admin account from {@code sareeta.admin.bootstrap.username} and
+ * {@code sareeta.admin.bootstrap.password-hash} when no account of that name exists. Further admins
+ * are granted by an admin through {@code /api/admin/users/{username}/admin}.
+ */
+@Component
+@ConditionalOnProperty(name = "sareeta.admin.bootstrap.username")
+public class AdminBootstrap implements ApplicationRunner {
+
+	private final UserProvisioningService userProvisioningService;
+	private final String username;
+	private final String passwordHash;
+
+	public AdminBootstrap(UserProvisioningService userProvisioningService,
+			@Value("${sareeta.admin.bootstrap.username}") String username,
+			@Value("${sareeta.admin.bootstrap.password-hash}") String passwordHash) {
+		this.userProvisioningService = userProvisioningService;
+		this.username = username;
+		this.passwordHash = passwordHash;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		userProvisioningService.bootstrapAdmin(username, passwordHash);
+	}
+}
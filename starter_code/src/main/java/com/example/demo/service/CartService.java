@@ -0,0 +1,261 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.CartOperation;
+import com.example.demo.model.responses.BatchModifyCartResponse;
+import com.example.demo.model.responses.CartOperationResult;
+import com.example.demo.security.AuthenticatedUser;
+
+@Service
+public class CartService {
+
+	private final UserRepository userRepository;
+	private final CartRepository cartRepository;
+	private final ItemRepository itemRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final int maxAttempts;
+	private final long backoffMillis;
+	private final Counter conflicts;
+	// Present when sareeta.cart.write-behind.enabled is set; edits then go to memory first
+	private final WriteBehindCartStore cartStore;
+
+	public CartService(UserRepository userRepository, CartRepository cartRepository,
+			ItemRepository itemRepository, PlatformTransactionManager transactionManager,
+			MeterRegistry meterRegistry, ObjectProvider<WriteBehindCartStore> cartStore,
+			@Value("${sareeta.cart.conflict-retry.max-attempts:20}") int maxAttempts,
+			@Value("${sareeta.cart.conflict-retry.backoff:2ms}") Duration backoff) {
+		this.userRepository = userRepository;
+		this.cartRepository = cartRepository;
+		this.itemRepository = itemRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.cartStore = cartStore.getIfAvailable();
+		this.maxAttempts = maxAttempts;
+		this.backoffMillis = Math.max(1, backoff.toMillis());
+		this.conflicts = Counter.builder("sareeta.cart.conflicts")
+				.description("Cart writes retried after losing to a concurrent write")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Reads the cart from the database, after writing any edits the write-behind store still holds
+	 * for it.
+	 */
+	public Optional<Cart> findCart(String username, AuthenticatedUser principal) {
+		if(cartStore != null) {
+			Optional<Long> cartId = findCartId(username, principal);
+			if(!cartId.isPresent()) {
+				return Optional.empty();
+			}
+			cartStore.flush(cartId.get());
+			return cartRepository.findById(cartId.get());
+		}
+		return findStoredCart(username, principal);
+	}
+
+	private Optional<Cart> findStoredCart(String username, AuthenticatedUser principal) {
+		if(principal != null && principal.cartId() != null && principal.isUser(username)) {
+			return cartRepository.findById(principal.cartId());
+		}
+		User user = userRepository.findByUsername(username);
+		return user == null ? Optional.empty() : Optional.ofNullable(user.getCart());
+	}
+
+	private Optional<Long> findCartId(String username, AuthenticatedUser principal) {
+		if(principal != null && principal.cartId() != null && principal.isUser(username)) {
+			return Optional.of(principal.cartId());
+		}
+		User user = userRepository.findByUsername(username);
+		return user == null || user.getCart() == null ? Optional.empty() : Optional.ofNullable(user.getCart().getId());
+	}
+
+	/**
+	 * Adds to the cart. Empty when the cart or the item does not exist.
+	 */
+	public Optional<Cart> addItem(String username, AuthenticatedUser principal, long itemId, int quantity) {
+		if(cartStore != null) {
+			return updateInStore(username, principal, itemId, (cart, item) -> cart.addItem(item, quantity));
+		}
+		return retryOnConflict(() -> {
+			Optional<Long> cartId = quantity > 0 ? findCartId(username, principal) : Optional.empty();
+			if(cartId.isPresent() && cartRepository.addToExistingLineTotal(cartId.get(), itemId, quantity) == 1) {
+				if(cartRepository.addToExistingLineQuantity(cartId.get(), itemId, quantity) != 1) {
+					throw new OptimisticLockingFailureException("Cart line " + itemId + " removed while adding to it");
+				}
+				Optional<Cart> cart = cartRepository.findById(cartId.get());
+				cart.ifPresent(updated -> updated.getLines().size());
+				return cart;
+			}
+			// The first of an item, or a quantity out of range: add through the entity, which checks both
+			Optional<Cart> cart = findStoredCart(username, principal);
+			if(!cart.isPresent()) {
+				return Optional.empty();
+			}
+			Optional<Item> item = itemRepository.findById(itemId);
+			if(!item.isPresent()) {
+				return Optional.empty();
+			}
+			cart.get().addItem(item.get(), quantity);
+			return Optional.of(cartRepository.save(cart.get()));
+		});
+	}
+
+	/**
+	 * Removes from the cart. Empty when the cart or the item does not exist.
+	 */
+	public Optional<Cart> removeItem(String username, AuthenticatedUser principal, long itemId, int quantity) {
+		if(cartStore != null) {
+			return updateInStore(username, principal, itemId, (cart, item) -> cart.removeItem(item, quantity));
+		}
+		return retryOnConflict(() -> {
+			Optional<Cart> cart = findStoredCart(username, principal);
+			if(!cart.isPresent()) {
+				return Optional.empty();
+			}
+			Optional<Item> item = itemRepository.findById(itemId);
+			if(!item.isPresent()) {
+				return Optional.empty();
+			}
+			cart.get().removeItem(item.get(), quantity);
+			return Optional.of(cartRepository.save(cart.get()));
+		});
+	}
+
+	/**
+	 * Applies every operation to the cart in one transaction. Items are resolved with a single
+	 * query and an operation that cannot be applied is reported without failing the others.
+	 * Empty when the cart does not exist.
+	 */
+	public Optional<BatchModifyCartResponse> applyBatch(String username, AuthenticatedUser principal,
+			List<CartOperation> operations) {
+		if(cartStore != null) {
+			Optional<Long> cartId = findCartId(username, principal);
+			if(!cartId.isPresent()) {
+				return Optional.empty();
+			}
+			Map<Long, Item> items = findItems(operations);
+			return cartStore.update(cartId.get(),
+					cart -> new BatchModifyCartResponse(cart, applyBatch(cart, operations, items)));
+		}
+		return retryOnConflict(() -> findStoredCart(username, principal).map(cart -> {
+			List<CartOperationResult> results = applyBatch(cart, operations, findItems(operations));
+			return new BatchModifyCartResponse(cartRepository.save(cart), results);
+		}));
+	}
+
+	private Optional<Cart> updateInStore(String username, AuthenticatedUser principal, long itemId,
+			BiConsumer<Cart, Item> change) {
+		Optional<Long> cartId = findCartId(username, principal);
+		if(!cartId.isPresent()) {
+			return Optional.empty();
+		}
+		Optional<Item> item = itemRepository.findById(itemId);
+		if(!item.isPresent()) {
+			return Optional.empty();
+		}
+		return cartStore.update(cartId.get(), cart -> {
+			change.accept(cart, item.get());
+			return cart;
+		});
+	}
+
+	private Map<Long, Item> findItems(List<CartOperation> operations) {
+		Set<Long> itemIds = new HashSet<>();
+		for(CartOperation operation : operations) {
+			itemIds.add(operation.getItemId());
+		}
+		Map<Long, Item> items = new HashMap<>();
+		for(Item item : itemRepository.findAllById(itemIds)) {
+			items.put(item.getId(), item);
+		}
+		return items;
+	}
+
+	private List<CartOperationResult> applyBatch(Cart cart, List<CartOperation> operations, Map<Long, Item> items) {
+		List<CartOperationResult> results = new ArrayList<>(operations.size());
+		for(int i = 0; i < operations.size(); i++) {
+			CartOperation operation = operations.get(i);
+			Item item = items.get(operation.getItemId());
+			if(item == null) {
+				results.add(new CartOperationResult(i, operation, CartOperationResult.Status.ITEM_NOT_FOUND, 0));
+				continue;
+			}
+			if(operation.getAction() == null || operation.getQuantity() <= 0) {
+				results.add(new CartOperationResult(i, operation, CartOperationResult.Status.INVALID_OPERATION,
+						cart.getQuantity(item)));
+				continue;
+			}
+			if(operation.getAction() == CartOperation.Action.ADD) {
+				cart.addItem(item, operation.getQuantity());
+			} else {
+				cart.removeItem(item, operation.getQuantity());
+			}
+			results.add(new CartOperationResult(i, operation, CartOperationResult.Status.APPLIED,
+					cart.getQuantity(item)));
+		}
+
+		return results;
+	}
+
+	/**
+	 * Runs a cart write in a transaction of its own. The cart is versioned, so when a concurrent
+	 * write commits first this one fails instead of overwriting it, and is run again from a fresh
+	 * read so the requested change is applied on top of the other. Retries wait a random time of up
+	 * to {@code backoff} doubled with each attempt, so writers that lost together do not collide
+	 * again. Adds to an existing line are applied in place and only retry after a lock timeout.
+	 */
+	private <T> T retryOnConflict(Supplier<T> write) {
+		for(int attempt = 1; ; attempt++) {
+			try {
+				return transactionTemplate.execute(status -> {
+					T result = write.get();
+					// Flush here so a conflict fails this callback and the transaction is rolled
+					// back and its persistence context cleared before the next attempt
+					cartRepository.flush();
+					return result;
+				});
+			} catch(ConcurrencyFailureException | DataIntegrityViolationException e) {
+				// An integrity violation here is two writers inserting the same item's first line
+				if(attempt >= maxAttempts) {
+					throw e;
+				}
+				conflicts.increment();
+				try {
+					Thread.sleep(1 + ThreadLocalRandom.current().nextLong(backoffMillis << Math.min(attempt, 6)));
+				} catch(InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+					throw e;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.example.demo.service;
+
+import javax.sql.DataSource;
+
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.search.ItemSearchIndexLoader;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Loads the catalog from {@code data.sql} once the application is ready, on a thread of its own,
+ * instead of during startup. Turned on with {@code sareeta.startup.lazy-seeding=true} together
+ * with {@code spring.sql.init.mode=never}. A table that already has items is left alone, so
+ * instances joining a shared database do not seed it again.
+ */
+@Component
+@ConditionalOnProperty(name = "sareeta.startup.lazy-seeding", havingValue = "true")
+public class CatalogSeeder {
+
+	private static final Logger log = LoggerFactory.getLogger(CatalogSeeder.class);
+
+	private final ItemRepository itemRepository;
+	private final DataSource dataSource;
+	private final TransactionTemplate transactionTemplate;
+	private final EntityManagerFactory entityManagerFactory;
+	private final ItemSearchIndexLoader searchIndexLoader;
+
+	public CatalogSeeder(ItemRepository itemRepository, DataSource dataSource,
+			PlatformTransactionManager transactionManager, EntityManagerFactory entityManagerFactory,
+			ItemSearchIndexLoader searchIndexLoader) {
+		this.itemRepository = itemRepository;
+		this.dataSource = dataSource;
+		// Not read-only, so the emptiness check sees the primary rather than a replica
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.entityManagerFactory = entityManagerFactory;
+		this.searchIndexLoader = searchIndexLoader;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void seedInBackground() {
+		Thread seeder = new Thread(this::seed, "catalog-seeder");
+		seeder.setDaemon(true);
+		seeder.start();
+	}
+
+	void seed() {
+		try {
+			Boolean seeded = transactionTemplate.execute(status -> {
+				if(itemRepository.count() > 0) {
+					return false;
+				}
+				new ResourceDatabasePopulator(new ClassPathResource("data.sql")).execute(dataSource);
+				return true;
+			});
+			if(!Boolean.TRUE.equals(seeded)) {
+				return;
+			}
+			// The rows went in over JDBC, so nothing told the caches or the search index about them
+			entityManagerFactory.getCache().evict(Item.class);
+			entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegion(Item.QUERY_CACHE_REGION);
+			searchIndexLoader.load();
+			log.info("Seeded the item catalog");
+		} catch(RuntimeException e) {
+			log.error("Seeding the item catalog failed", e);
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package com.example.demo.service;
+
+import java.time.Instant;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.model.money.Money;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserOrderSummaryRepository;
+
+@Service
+public class OrderService {
+
+	private final OrderRepository orderRepository;
+	private final UserOrderSummaryRepository summaryRepository;
+	private final TransactionTemplate transactionTemplate;
+
+	public OrderService(OrderRepository orderRepository, UserOrderSummaryRepository summaryRepository,
+			PlatformTransactionManager transactionManager) {
+		this.orderRepository = orderRepository;
+		this.summaryRepository = summaryRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+	}
+
+	/**
+	 * Saves an order for the cart's current contents and adds it to the user's order summary, in
+	 * a transaction of its own.
+	 */
+	public UserOrder placeOrder(Cart cart) {
+		try {
+			return transactionTemplate.execute(status -> saveOrder(cart));
+		} catch(DataIntegrityViolationException e) {
+			// Two first orders of a user can both find no summary and both insert one, and the later
+			// insert fails on the key; the summary is there to add to when the order is saved again
+			return transactionTemplate.execute(status -> saveOrder(cart));
+		}
+	}
+
+	/**
+	 * Adds orders to the user's summary. Must run in the transaction that writes the orders; a
+	 * user without a summary yet gets one built from all of their orders, these included.
+	 */
+	@Transactional(propagation = Propagation.MANDATORY)
+	public void recordOrders(long userId, int orders, Money spend, Instant orderedAt) {
+		if(summaryRepository.addOrders(userId, orders, spend.toBigDecimal(), orderedAt) == 0) {
+			orderRepository.flush();
+			summaryRepository.insertFromOrders(userId);
+		}
+	}
+
+	private UserOrder saveOrder(Cart cart) {
+		UserOrder order = orderRepository.save(UserOrder.createFromCart(cart));
+		recordOrders(order.getUser().getId(), 1, order.getTotal(), order.getCreatedAt());
+		return order;
+	}
+}
@@ -0,0 +1,291 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.model.money.Money;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.OrderLine;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.responses.OrderStatusResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Accepts orders into a bounded queue and writes them from worker threads, many orders per
+ * transaction and JDBC batch. Turned on with {@code sareeta.order.async.enabled=true}.
+ *
+ * <p>Order and line ids are reserved when the order is accepted, from the same sequences and
+ * Hibernate generators the entities use, so the caller can poll for the order straight away. When
+ * the queue is full the order is refused rather than waited for. A batch that fails is retried an
+ * order at a time so one bad order does not fail the others, and each batch updates its users'
+ * order summaries in the same transaction. The queue is drained when the application stops;
+ * orders still queued are lost if the process dies without stopping.
+ */
+@Service
+@ConditionalOnProperty(name = "sareeta.order.async.enabled", havingValue = "true")
+public class OrderSubmissionPipeline implements SmartLifecycle {
+
+	private static final Logger log = LoggerFactory.getLogger(OrderSubmissionPipeline.class);
+
+	private static final String INSERT_ORDER =
+			"insert into user_order (id, user_id, total, created_at) values (?, ?, ?, ?)";
+	private static final String INSERT_LINE =
+			"insert into order_line (id, order_id, item_id, quantity, unit_price) values (?, ?, ?, ?, ?)";
+
+	private final JdbcTemplate jdbcTemplate;
+	private final OrderService orderService;
+	private final TransactionTemplate transactionTemplate;
+	private final SessionFactoryImplementor sessionFactory;
+	private final IdentifierGenerator orderIds;
+	private final IdentifierGenerator lineIds;
+	private final BlockingQueue<PendingOrder> queue;
+	private final int workerCount;
+	private final int batchSize;
+	// Recent outcomes, kept long enough that a poll never has to read a replica that is behind
+	private final Cache<Long, TrackedOrder> statuses;
+	private final Counter rejected;
+	private final Counter failed;
+	private final List<Thread> workers = new ArrayList<>();
+	private volatile boolean running;
+
+	public OrderSubmissionPipeline(JdbcTemplate jdbcTemplate, OrderService orderService,
+			PlatformTransactionManager transactionManager,
+			EntityManagerFactory entityManagerFactory, MeterRegistry meterRegistry,
+			@Value("${sareeta.order.async.queue-capacity:1000}") int queueCapacity,
+			@Value("${sareeta.order.async.workers:2}") int workerCount,
+			@Value("${sareeta.order.async.batch-size:50}") int batchSize,
+			@Value("${sareeta.order.async.status-retention:10m}") Duration statusRetention) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.orderService = orderService;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+		this.orderIds = generatorOf(sessionFactory, UserOrder.class);
+		this.lineIds = generatorOf(sessionFactory, OrderLine.class);
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.workerCount = workerCount;
+		this.batchSize = batchSize;
+		this.statuses = Caffeine.newBuilder()
+				.expireAfterWrite(statusRetention)
+				.build();
+		this.rejected = Counter.builder("sareeta.order.rejected")
+				.description("Orders refused because the submission queue was full")
+				.register(meterRegistry);
+		this.failed = Counter.builder("sareeta.order.failed")
+				.description("Accepted orders that could not be written")
+				.register(meterRegistry);
+		Gauge.builder("sareeta.order.queue.depth", queue, BlockingQueue::size)
+				.description("Accepted orders waiting to be written")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Queues an order for the cart's current contents. Empty when the queue is full or the
+	 * pipeline has stopped.
+	 *
+	 * @throws IllegalArgumentException when the cart is empty, before any id is reserved
+	 */
+	public Optional<Long> submit(Cart cart) {
+		if(cart.getLines() == null || cart.getLines().isEmpty()) {
+			throw new IllegalArgumentException("Cannot submit an order for an empty cart");
+		}
+		if(!running || queue.remainingCapacity() == 0) {
+			rejected.increment();
+			return Optional.empty();
+		}
+		List<PendingLine> lines = new ArrayList<>();
+		long orderId;
+		try(StatelessSession session = sessionFactory.openStatelessSession()) {
+			orderId = nextId(orderIds, session);
+			for(CartLine line : cart.getLines()) {
+				lines.add(new PendingLine(nextId(lineIds, session), line.getItem().getId(), line.getQuantity(),
+						line.getUnitPrice()));
+			}
+		}
+		long userId = cart.getUser().getId();
+		statuses.put(orderId, new TrackedOrder(userId, OrderStatusResponse.Status.QUEUED));
+		if(!queue.offer(new PendingOrder(orderId, userId, cart.getTotal(), Instant.now(), lines))) {
+			statuses.invalidate(orderId);
+			rejected.increment();
+			return Optional.empty();
+		}
+		return Optional.of(orderId);
+	}
+
+	/**
+	 * Status of a recently accepted order of the user. Empty when it is not tracked here any more,
+	 * or belongs to someone else.
+	 */
+	public Optional<OrderStatusResponse.Status> status(long orderId, long userId) {
+		TrackedOrder tracked = statuses.getIfPresent(orderId);
+		return tracked == null || tracked.userId() != userId ? Optional.empty() : Optional.of(tracked.status());
+	}
+
+	@Override
+	public void start() {
+		running = true;
+		for(int i = 1; i <= workerCount; i++) {
+			Thread worker = new Thread(this::drain, "order-writer-" + i);
+			worker.setDaemon(true);
+			worker.start();
+			workers.add(worker);
+		}
+	}
+
+	@Override
+	public void stop() {
+		running = false;
+		for(Thread worker : workers) {
+			try {
+				worker.join(TimeUnit.SECONDS.toMillis(30));
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+		}
+		workers.clear();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return running;
+	}
+
+	// Stops after the web server has stopped taking requests, so every accepted order is written
+	@Override
+	public int getPhase() {
+		return SmartLifecycle.DEFAULT_PHASE - 4096;
+	}
+
+	private void drain() {
+		List<PendingOrder> batch = new ArrayList<>(batchSize);
+		while(running || !queue.isEmpty()) {
+			try {
+				PendingOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if(first == null) {
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, batchSize - 1);
+				write(batch);
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch(RuntimeException e) {
+				log.error("Order writer failed", e);
+			} finally {
+				batch.clear();
+			}
+		}
+	}
+
+	private void write(List<PendingOrder> orders) {
+		write(orders, true);
+	}
+
+	private void write(List<PendingOrder> orders, boolean retry) {
+		try {
+			transactionTemplate.executeWithoutResult(status -> insert(orders));
+		} catch(RuntimeException e) {
+			if(orders.size() == 1 && retry && e instanceof DataIntegrityViolationException) {
+				// A first order of the same user written at the same time can insert the order summary
+				// first; it is there to add to on a second attempt
+				write(orders, false);
+				return;
+			}
+			if(orders.size() == 1) {
+				PendingOrder order = orders.getFirst();
+				log.warn("Order {} could not be written", order.id(), e);
+				failed.increment();
+				statuses.put(order.id(), new TrackedOrder(order.userId(), OrderStatusResponse.Status.FAILED));
+				return;
+			}
+			for(PendingOrder order : orders) {
+				write(List.of(order));
+			}
+			return;
+		}
+		for(PendingOrder order : orders) {
+			statuses.put(order.id(), new TrackedOrder(order.userId(), OrderStatusResponse.Status.PERSISTED));
+		}
+	}
+
+	private void insert(List<PendingOrder> orders) {
+		jdbcTemplate.batchUpdate(INSERT_ORDER, orders, orders.size(), (statement, order) -> {
+			statement.setLong(1, order.id());
+			statement.setLong(2, order.userId());
+			statement.setBigDecimal(3, order.total().toBigDecimal());
+			statement.setObject(4, order.createdAt().atOffset(ZoneOffset.UTC));
+		});
+		List<Object[]> lines = new ArrayList<>();
+		for(PendingOrder order : orders) {
+			for(PendingLine line : order.lines()) {
+				lines.add(new Object[] {line.id(), order.id(), line.itemId(), line.quantity(),
+						line.unitPrice().toBigDecimal()});
+			}
+		}
+		if(!lines.isEmpty()) {
+			jdbcTemplate.batchUpdate(INSERT_LINE, lines);
+		}
+
+		Map<Long, List<PendingOrder>> byUser = new HashMap<>();
+		for(PendingOrder order : orders) {
+			byUser.computeIfAbsent(order.userId(), userId -> new ArrayList<>()).add(order);
+		}
+		byUser.forEach((userId, placed) -> orderService.recordOrders(userId, placed.size(),
+				placed.stream().map(PendingOrder::total).reduce(Money.ZERO, Money::plus),
+				placed.stream().map(PendingOrder::createdAt).max(Comparator.naturalOrder()).orElseThrow()));
+	}
+
+	private static IdentifierGenerator generatorOf(SessionFactoryImplementor sessionFactory, Class<?> entity) {
+		return (IdentifierGenerator) sessionFactory.getMappingMetamodel().getEntityDescriptor(entity).getGenerator();
+	}
+
+	// The generators hand out ids from blocks held in memory and only reach the sequence when a
+	// block runs out
+	private static long nextId(IdentifierGenerator generator, StatelessSession session) {
+		return ((Number) generator.generate((SharedSessionContractImplementor) session, null)).longValue();
+	}
+
+	private record PendingOrder(long id, long userId, Money total, Instant createdAt, List<PendingLine> lines) {
+	}
+
+	private record PendingLine(long id, long itemId, int quantity, Money unitPrice) {
+	}
+
+	private record TrackedOrder(long userId, OrderStatusResponse.Status status) {
+	}
+}
@@ -0,0 +1,34 @@
+package com.example.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.example.demo.model.persistence.repositories.UserOrderSummaryRepository;
+
+/**
+ * Builds order summaries for users who placed orders before summaries were kept. Run once with
+ * {@code sareeta.order.summary.backfill=true}; users who already have a summary are skipped, so
+ * running it again is harmless.
+ */
+@Component
+@ConditionalOnProperty(name = "sareeta.order.summary.backfill", havingValue = "true")
+public class OrderSummaryBackfill implements ApplicationRunner {
+
+	private static final Logger log = LoggerFactory.getLogger(OrderSummaryBackfill.class);
+
+	private final UserOrderSummaryRepository summaryRepository;
+
+	public OrderSummaryBackfill(UserOrderSummaryRepository summaryRepository) {
+		this.summaryRepository = summaryRepository;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		int created = summaryRepository.insertMissingFromOrders();
+		log.info("Backfilled order summaries for {} users", created);
+	}
+}
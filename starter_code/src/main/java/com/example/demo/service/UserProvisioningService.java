@@ -0,0 +1,237 @@
+package com.example.demo.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.model.responses.BulkCreateUsersResponse;
+import com.example.demo.model.responses.UserCreationResult;
+import com.example.demo.security.CachingUserDetailsService;
+
+/**
+ * Creates many users in one call, for migrating existing customers. Rows are checked and reported
+ * one by one: an invalid row or a taken username fails only that row.
+ *
+ * <p>Usernames that are already taken are looked up before any hashing, so no CPU is spent on rows
+ * that cannot be created. Passwords are then hashed in parallel on the password hashing pool, and
+ * users with their carts are inserted a chunk per transaction through Hibernate's JDBC batching. A
+ * chunk that hits the unique username constraint, because someone took a name in the meantime, is
+ * retried a user at a time. A single user the database rejects for any other reason, such as a
+ * username longer than the column, is reported as invalid.
+ */
+@Service
+public class UserProvisioningService {
+
+	private static final Logger log = LoggerFactory.getLogger(UserProvisioningService.class);
+
+	// Usernames per lookup query, and users per insert transaction
+	private static final int CHUNK_SIZE = 500;
+
+	private final UserRepository userRepository;
+	private final BCryptPasswordEncoder passwordEncoder;
+	private final ForkJoinPool hashingPool;
+	private final CachingUserDetailsService userDetailsService;
+	// Not read-only, so the username check reads the primary rather than a replica that is behind
+	private final TransactionTemplate transactionTemplate;
+	private final int maxUsers;
+
+	public UserProvisioningService(UserRepository userRepository, BCryptPasswordEncoder passwordEncoder,
+			ForkJoinPool passwordHashingPool, CachingUserDetailsService userDetailsService,
+			PlatformTransactionManager transactionManager,
+			@Value("${sareeta.user.bulk.max-users:10000}") int maxUsers) {
+		this.userRepository = userRepository;
+		this.passwordEncoder = passwordEncoder;
+		this.hashingPool = passwordHashingPool;
+		this.userDetailsService = userDetailsService;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.maxUsers = maxUsers;
+	}
+
+	public BulkCreateUsersResponse createUsers(List<CreateUserRequest> requests) {
+		if(requests.size() > maxUsers) {
+			throw new IllegalArgumentException("At most " + maxUsers + " users can be created per request");
+		}
+		List<UserCreationResult> results = new ArrayList<>();
+		List<PendingUser> pending = new ArrayList<>();
+		Set<String> seen = new HashSet<>();
+		for(int i = 0; i < requests.size(); i++) {
+			CreateUserRequest request = requests.get(i);
+			String problem = validate(request);
+			if(problem != null) {
+				results.add(new UserCreationResult(i, request.getUsername(), UserCreationResult.Status.INVALID, null,
+						problem));
+			} else if(!seen.add(request.getUsername())) {
+				results.add(duplicate(i, request.getUsername()));
+			} else {
+				pending.add(new PendingUser(i, request.getUsername(), request.getPassword()));
+			}
+		}
+
+		Set<String> taken = new HashSet<>();
+		for(List<PendingUser> chunk : chunks(pending)) {
+			taken.addAll(transactionTemplate.execute(status -> userRepository.findExistingUsernames(
+					chunk.stream().map(PendingUser::username).toList())));
+		}
+		List<PendingUser> fresh = new ArrayList<>();
+		for(PendingUser user : pending) {
+			if(taken.contains(user.username())) {
+				results.add(duplicate(user.index(), user.username()));
+			} else {
+				fresh.add(user);
+			}
+		}
+
+		// One task per password; idle workers steal queued hashes from busy ones
+		List<ForkJoinTask<String>> hashes = fresh.stream()
+				.map(user -> hashingPool.submit(() -> passwordEncoder.encode(user.password())))
+				.toList();
+		List<PendingUser> hashed = new ArrayList<>(fresh.size());
+		for(int i = 0; i < fresh.size(); i++) {
+			hashed.add(fresh.get(i).withHash(hashes.get(i).join()));
+		}
+
+		int created = 0;
+		for(List<PendingUser> chunk : chunks(hashed)) {
+			created += insert(chunk, results);
+		}
+		results.sort(Comparator.comparingInt(UserCreationResult::getIndex));
+		return new BulkCreateUsersResponse(created, results);
+	}
+
+	/**
+	 * Grants or withdraws admin. Tokens issued before keep the roles they were signed with until
+	 * they expire or are revoked. False when there is no such user.
+	 */
+	public boolean setAdmin(String username, boolean admin) {
+		if(userRepository.updateAdmin(username, admin) == 0) {
+			return false;
+		}
+		userDetailsService.evict(username);
+		return true;
+	}
+
+	/**
+	 * Creates the admin account configured for a new installation, so the first admin never goes
+	 * through the open sign up. An existing account of that name is left as it is: it may have been
+	 * registered by someone else, so it is not made admin.
+	 */
+	public void bootstrapAdmin(String username, String passwordHash) {
+		transactionTemplate.executeWithoutResult(status -> {
+			User existing = userRepository.findByUsername(username);
+			if(existing != null) {
+				if(!existing.isAdmin()) {
+					log.warn("Bootstrap admin {} already exists without admin and was not made admin", username);
+				}
+				return;
+			}
+			User admin = new PendingUser(0, username, passwordHash).toUser();
+			admin.setAdmin(true);
+			userRepository.save(admin);
+			log.info("Created bootstrap admin {}", username);
+		});
+	}
+
+	private int insert(List<PendingUser> chunk, List<UserCreationResult> results) {
+		List<User> users;
+		try {
+			users = transactionTemplate.execute(status -> userRepository.saveAll(
+					chunk.stream().map(PendingUser::toUser).toList()));
+		} catch(DataIntegrityViolationException e) {
+			if(chunk.size() == 1) {
+				PendingUser user = chunk.getFirst();
+				results.add(isUsernameTaken(e) ? duplicate(user.index(), user.username())
+						: new UserCreationResult(user.index(), user.username(), UserCreationResult.Status.INVALID,
+								null, "Rejected by the database"));
+				return 0;
+			}
+			int created = 0;
+			for(PendingUser user : chunk) {
+				created += insert(List.of(user), results);
+			}
+			return created;
+		}
+		for(int i = 0; i < chunk.size(); i++) {
+			User user = users.get(i);
+			results.add(new UserCreationResult(chunk.get(i).index(), user.getUsername(),
+					UserCreationResult.Status.CREATED, user.getId(), null));
+		}
+		return chunk.size();
+	}
+
+	// The checks of the single-user sign up; the confirmation is optional here, as migrated
+	// passwords are not typed in twice
+	private static String validate(CreateUserRequest request) {
+		if(request.getUsername() == null || request.getUsername().isBlank()) {
+			return "Username is missing";
+		}
+		if(request.getPassword() == null || request.getPassword().length() < 8) {
+			return "Password must be min 8 characters long";
+		}
+		if(request.getConfirmPassword() != null && !request.getPassword().equals(request.getConfirmPassword())) {
+			return "Passwords do not match";
+		}
+		return null;
+	}
+
+	private static boolean isUsernameTaken(DataIntegrityViolationException e) {
+		for(Throwable cause = e; cause != null; cause = cause.getCause()) {
+			if(cause instanceof ConstraintViolationException violation) {
+				return violation.getKind() == ConstraintViolationException.ConstraintKind.UNIQUE
+						&& violation.getConstraintName() != null
+						&& violation.getConstraintName().toLowerCase(Locale.ROOT).contains(User.USERNAME_CONSTRAINT);
+			}
+		}
+		return false;
+	}
+
+	private static UserCreationResult duplicate(int index, String username) {
+		return new UserCreationResult(index, username, UserCreationResult.Status.DUPLICATE_USERNAME, null,
+				"Username is taken");
+	}
+
+	private static List<List<PendingUser>> chunks(List<PendingUser> users) {
+		List<List<PendingUser>> chunks = new ArrayList<>();
+		for(int from = 0; from < users.size(); from += CHUNK_SIZE) {
+			chunks.add(users.subList(from, Math.min(from + CHUNK_SIZE, users.size())));
+		}
+		return chunks;
+	}
+
+	// The password is replaced by its hash before the user is inserted
+	private record PendingUser(int index, String username, String password) {
+
+		PendingUser withHash(String hash) {
+			return new PendingUser(index, username, hash);
+		}
+
+		// New entities on every attempt, as a failed insert leaves ids on the ones it used
+		User toUser() {
+			User user = new User();
+			user.setUsername(username);
+			user.setPassword(password);
+			Cart cart = new Cart();
+			cart.setUser(user);
+			user.setCart(cart);
+			return user;
+		}
+	}
+}
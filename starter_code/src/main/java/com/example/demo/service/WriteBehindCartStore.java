@@ -0,0 +1,446 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.demo.model.money.Money;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.CartLine;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Keeps active carts in memory and writes cart edits to the database behind the request, in
+ * periodic batches. Turned on with {@code sareeta.cart.write-behind.enabled=true}.
+ *
+ * <p>Each cart is held as an immutable snapshot and an edit swaps in a new snapshot with a
+ * compare-and-set, so edits to different carts never contend and readers never lock. Carts changed
+ * since their last write are written every {@code flush-interval}, and immediately for one cart by
+ * {@link #flush(long)} (an order is about to be taken from it) and for all of them when the
+ * application stops. Memory is bounded by {@code max-lines}, counting one per cart and one per
+ * line; a cart evicted before it was written is held aside until the next flush. Once
+ * {@code max-evicted} carts are held aside, the next edit writes them before it is applied, so
+ * edits slow down to the speed of the database rather than growing memory when flushes fall
+ * behind.
+ *
+ * <p>The store assumes it is the only writer of the carts it holds, so it must not be enabled on
+ * more than one instance unless carts are routed to instances by user. Edits not yet written are
+ * lost if the process dies without stopping, and other readers of the cart tables can be behind by
+ * up to one flush interval.
+ */
+@Service
+@ConditionalOnProperty(name = "sareeta.cart.write-behind.enabled", havingValue = "true")
+public class WriteBehindCartStore implements SmartLifecycle {
+
+	private static final Logger log = LoggerFactory.getLogger(WriteBehindCartStore.class);
+
+	// Carts written per transaction
+	private static final int FLUSH_BATCH = 100;
+
+	private final CartRepository cartRepository;
+	private final ItemRepository itemRepository;
+	private final TransactionTemplate transactionTemplate;
+	private final Duration flushInterval;
+	private final int maxEvicted;
+	private final Cache<Long, CartState> carts;
+	// Dirty carts evicted from the cache, until they are written or edited again
+	private final Map<Long, CartState> evicted = new ConcurrentHashMap<>();
+	private final Set<Long> dirtyIds = ConcurrentHashMap.newKeySet();
+	private final ReentrantLock flushLock = new ReentrantLock();
+	private final AtomicBoolean flushRequested = new AtomicBoolean();
+	private final Counter written;
+	private volatile ScheduledExecutorService flusher;
+
+	public WriteBehindCartStore(CartRepository cartRepository, ItemRepository itemRepository,
+			PlatformTransactionManager transactionManager, MeterRegistry meterRegistry,
+			@Value("${sareeta.cart.write-behind.flush-interval:1s}") Duration flushInterval,
+			@Value("${sareeta.cart.write-behind.max-lines:100000}") long maxLines,
+			@Value("${sareeta.cart.write-behind.max-evicted:1000}") int maxEvicted) {
+		this.cartRepository = cartRepository;
+		this.itemRepository = itemRepository;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.flushInterval = flushInterval;
+		this.maxEvicted = maxEvicted;
+		this.carts = Caffeine.newBuilder()
+				.maximumWeight(maxLines)
+				.weigher((Long cartId, CartState state) -> 1 + state.lines.size())
+				.evictionListener((Long cartId, CartState state, RemovalCause cause) -> {
+					if(state != null && state.dirty) {
+						evicted.put(cartId, state);
+						requestFlush();
+					}
+				})
+				.executor(Runnable::run)
+				.build();
+		this.written = Counter.builder("sareeta.cart.write-behind.written")
+				.description("Carts written to the database by the write-behind cart store")
+				.register(meterRegistry);
+		Gauge.builder("sareeta.cart.write-behind.dirty", dirtyIds, Set::size)
+				.description("Carts edited in memory and not yet written")
+				.register(meterRegistry);
+	}
+
+	/**
+	 * Applies a change to the cart in memory. The change is given a detached copy of the cart,
+	 * which is returned to the caller afterwards and must not be changed again. It can run more
+	 * than once when the cart is edited concurrently, so it must not have other side effects.
+	 * Empty when the cart does not exist.
+	 */
+	public <T> Optional<T> update(long cartId, Function<Cart, T> change) {
+		if(evicted.size() >= maxEvicted) {
+			flushEvicted();
+		}
+		for(;;) {
+			CartState current = carts.get(cartId, this::load);
+			if(current == null) {
+				return Optional.empty();
+			}
+			Cart cart = current.toCart();
+			T result = change.apply(cart);
+			CartState next = CartState.of(cart, current, true);
+			if(carts.asMap().replace(cartId, current, next)) {
+				dirtyIds.add(cartId);
+				return Optional.ofNullable(result);
+			}
+			// Another edit, a flush or an eviction replaced the snapshot first; apply on top of it
+		}
+	}
+
+	/**
+	 * Writes the cart now if it has edits that have not been written.
+	 */
+	public void flush(long cartId) {
+		flushLock.lock();
+		try {
+			CartState state = current(cartId);
+			if(state != null && state.dirty) {
+				dirtyIds.remove(cartId);
+				write(List.of(state));
+			}
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	/**
+	 * Writes every cart with edits that have not been written, in batches.
+	 */
+	public void flushAll() {
+		flushLock.lock();
+		try {
+			flushRequested.set(false);
+			List<CartState> batch = new ArrayList<>(FLUSH_BATCH);
+			for(Long cartId : dirtyIds) {
+				// Removed before reading, so an edit after the read marks the cart dirty again
+				dirtyIds.remove(cartId);
+				CartState state = current(cartId);
+				if(state == null || !state.dirty) {
+					continue;
+				}
+				batch.add(state);
+				if(batch.size() == FLUSH_BATCH) {
+					write(batch);
+					batch = new ArrayList<>(FLUSH_BATCH);
+				}
+			}
+			if(!batch.isEmpty()) {
+				write(batch);
+			}
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	@Override
+	public void start() {
+		flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "cart-write-behind");
+			thread.setDaemon(true);
+			return thread;
+		});
+		flusher.scheduleWithFixedDelay(this::flushQuietly, flushInterval.toMillis(), flushInterval.toMillis(),
+				TimeUnit.MILLISECONDS);
+	}
+
+	@Override
+	public void stop() {
+		ScheduledExecutorService running = flusher;
+		flusher = null;
+		if(running != null) {
+			running.shutdown();
+			try {
+				running.awaitTermination(30, TimeUnit.SECONDS);
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		flushAll();
+	}
+
+	@Override
+	public boolean isRunning() {
+		return flusher != null;
+	}
+
+	// Stops after the web server has stopped taking requests, so the last edits are written
+	@Override
+	public int getPhase() {
+		return SmartLifecycle.DEFAULT_PHASE - 4096;
+	}
+
+	// Writes the carts held aside after eviction, on the calling thread
+	private void flushEvicted() {
+		flushLock.lock();
+		try {
+			List<CartState> batch = new ArrayList<>(FLUSH_BATCH);
+			for(CartState state : evicted.values()) {
+				dirtyIds.remove(state.cartId);
+				batch.add(state);
+				if(batch.size() == FLUSH_BATCH) {
+					write(batch);
+					batch = new ArrayList<>(FLUSH_BATCH);
+				}
+			}
+			if(!batch.isEmpty()) {
+				write(batch);
+			}
+		} finally {
+			flushLock.unlock();
+		}
+	}
+
+	private void requestFlush() {
+		ScheduledExecutorService running = flusher;
+		if(running != null && flushRequested.compareAndSet(false, true)) {
+			running.execute(this::flushQuietly);
+		}
+	}
+
+	private void flushQuietly() {
+		try {
+			flushAll();
+		} catch(RuntimeException e) {
+			log.warn("Writing carts failed, retrying in {}", flushInterval, e);
+		}
+	}
+
+	private CartState current(long cartId) {
+		CartState state = carts.getIfPresent(cartId);
+		return state != null ? state : evicted.get(cartId);
+	}
+
+	private CartState load(long cartId) {
+		CartState pending = evicted.remove(cartId);
+		if(pending != null) {
+			return pending;
+		}
+		// Read-write, so the cart is read from the primary rather than a replica
+		return transactionTemplate.execute(status -> cartRepository.findByIdIn(List.of(cartId)).stream()
+				.findFirst()
+				.map(cart -> CartState.of(cart, cart.getUser(), false))
+				.orElse(null));
+	}
+
+	private void write(List<CartState> states) {
+		Map<Long, Map<Long, Long>> lineIds;
+		try {
+			lineIds = transactionTemplate.execute(status -> {
+				Map<Long, CartState> byId = new HashMap<>();
+				for(CartState state : states) {
+					byId.put(state.cartId, state);
+				}
+				List<Cart> loaded = cartRepository.findByIdIn(byId.keySet());
+				for(Cart cart : loaded) {
+					copyLines(byId.get(cart.getId()), cart);
+				}
+				cartRepository.flush();
+
+				Map<Long, Map<Long, Long>> ids = new HashMap<>();
+				for(Cart cart : loaded) {
+					Map<Long, Long> byItem = new HashMap<>();
+					for(CartLine line : cart.getLines()) {
+						byItem.put(line.getItem().getId(), line.getId());
+					}
+					ids.put(cart.getId(), byItem);
+				}
+				return ids;
+			});
+		} catch(RuntimeException e) {
+			states.forEach(state -> dirtyIds.add(state.cartId));
+			throw e;
+		}
+		written.increment(states.size());
+
+		for(CartState state : states) {
+			Map<Long, Long> ids = lineIds.get(state.cartId);
+			if(ids == null) {
+				// The cart was deleted, so there is nothing left to keep
+				carts.asMap().remove(state.cartId, state);
+				evicted.remove(state.cartId, state);
+				continue;
+			}
+			// Only the snapshot that was written becomes clean; a newer one stays dirty for the next flush
+			carts.asMap().replace(state.cartId, state, state.written(ids));
+			evicted.remove(state.cartId, state);
+		}
+	}
+
+	private void copyLines(CartState state, Cart cart) {
+		Map<Long, Line> wanted = new HashMap<>();
+		for(Line line : state.lines) {
+			wanted.put(line.item().getId(), line);
+		}
+		List<CartLine> lines = cart.getLines();
+		lines.removeIf(line -> !wanted.containsKey(line.getItem().getId()));
+		Map<Long, CartLine> existing = new HashMap<>();
+		for(CartLine line : lines) {
+			existing.put(line.getItem().getId(), line);
+		}
+		for(Line line : state.lines) {
+			CartLine entity = existing.get(line.item().getId());
+			if(entity == null) {
+				lines.add(new CartLine(cart, itemRepository.getReferenceById(line.item().getId()), line.quantity(),
+						line.unitPrice()));
+			} else {
+				entity.setQuantity(line.quantity());
+				entity.setUnitPrice(line.unitPrice());
+			}
+		}
+		cart.setLines(lines);
+		cart.setTotal(Money.ofMinor(state.totalMinorUnits));
+	}
+
+	// Snapshots outlive the persistence context they were read in and are shared between threads,
+	// so they hold plain copies rather than managed entities or proxies
+	private static Item copyOf(Item item) {
+		Item managed = Hibernate.unproxy(item, Item.class);
+		Item copy = new Item();
+		copy.setId(managed.getId());
+		copy.setName(managed.getName());
+		copy.setDescription(managed.getDescription());
+		copy.setPrice(managed.getPrice());
+		return copy;
+	}
+
+	private record Line(Long id, Item item, int quantity, Money unitPrice) {
+	}
+
+	/**
+	 * One version of a cart. Compared by identity, so a compare-and-set only succeeds against the
+	 * exact snapshot that was read. Of the user it keeps only what the cart is shown with, not the
+	 * password hash.
+	 */
+	private static final class CartState {
+
+		final long cartId;
+		final Long userId;
+		final String username;
+		final List<Line> lines;
+		final long totalMinorUnits;
+		final boolean dirty;
+
+		CartState(long cartId, Long userId, String username, List<Line> lines, long totalMinorUnits,
+				boolean dirty) {
+			this.cartId = cartId;
+			this.userId = userId;
+			this.username = username;
+			this.lines = lines;
+			this.totalMinorUnits = totalMinorUnits;
+			this.dirty = dirty;
+		}
+
+		static CartState of(Cart cart, User user, boolean dirty) {
+			return user == null
+					? of(cart, null, null, null, dirty)
+					: of(cart, user.getId(), user.getUsername(), null, dirty);
+		}
+
+		/**
+		 * Snapshot of an edited copy of {@code previous}. Items the previous snapshot already holds
+		 * are kept as they are and only items added by the edit are copied.
+		 */
+		static CartState of(Cart cart, CartState previous, boolean dirty) {
+			return of(cart, previous.userId, previous.username, previous, dirty);
+		}
+
+		private static CartState of(Cart cart, Long userId, String username, CartState previous, boolean dirty) {
+			Map<Long, Item> held = new HashMap<>();
+			if(previous != null) {
+				for(Line line : previous.lines) {
+					held.put(line.item().getId(), line.item());
+				}
+			}
+			List<CartLine> cartLines = cart.getLines() == null ? List.of() : cart.getLines();
+			List<Line> lines = new ArrayList<>(cartLines.size());
+			for(CartLine line : cartLines) {
+				Item item = held.get(line.getItem().getId());
+				lines.add(new Line(line.getId(), item == line.getItem() ? item : copyOf(line.getItem()),
+						line.getQuantity(), line.getUnitPrice()));
+			}
+			return new CartState(cart.getId(), userId, username, List.copyOf(lines), cart.getTotal().minorUnits(),
+					dirty);
+		}
+
+		CartState written(Map<Long, Long> lineIds) {
+			List<Line> withIds = new ArrayList<>(lines.size());
+			for(Line line : lines) {
+				withIds.add(new Line(lineIds.get(line.item().getId()), line.item(), line.quantity(), line.unitPrice()));
+			}
+			return new CartState(cartId, userId, username, List.copyOf(withIds), totalMinorUnits, false);
+		}
+
+		Cart toCart() {
+			Cart cart = new Cart();
+			cart.setId(cartId);
+			if(userId != null) {
+				User user = new User();
+				user.setId(userId);
+				user.setUsername(username);
+				cart.setUser(user);
+			}
+			List<CartLine> cartLines = new ArrayList<>(lines.size());
+			for(Line line : lines) {
+				CartLine cartLine = new CartLine(cart, line.item(), line.quantity(), line.unitPrice());
+				cartLine.setId(line.id());
+				cartLines.add(cartLine);
+			}
+			cart.setLines(cartLines);
+			cart.setTotal(Money.ofMinor(totalMinorUnits));
+			return cart;
+		}
+	}
+
+}
@@ -0,0 +1,775 @@
+package com.example.demo;
+
+import com.example.demo.model.money.Money;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.UserOrderSummary;
+import com.example.demo.model.persistence.repositories.CartRepository;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.persistence.repositories.UserOrderSummaryRepository;
+import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.model.responses.BulkCreateUsersResponse;
+import com.example.demo.model.responses.CatalogImportResponse;
+import com.example.demo.model.responses.OrderHistoryPage;
+import com.example.demo.model.responses.OrderStatusResponse;
+import com.example.demo.model.responses.OrderSummary;
+import com.example.demo.model.responses.UserCreationResult;
+import com.example.demo.search.ItemSearchIndex;
+import com.example.demo.security.CalibratedBCryptPasswordEncoder;
+import com.example.demo.security.JWTUtils;
+import com.example.demo.security.PasswordCostMetrics;
+import com.example.demo.service.OrderService;
+import com.example.demo.service.OrderSubmissionPipeline;
+import com.example.demo.service.WriteBehindCartStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.EntityStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs against the real repositories and an H2 database of its own, for behaviour that only shows
+ * up in the SQL Hibernate issues.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:persistence-tests;NON_KEYWORDS=user",
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=warn",
+		"sareeta.admin.bootstrap.username=catalog-admin",
+		"sareeta.admin.bootstrap.password-hash=" + PersistenceIntegrationTests.ADMIN_PASSWORD_HASH,
+		"sareeta.catalog.import.batch-size=2",
+		// Statement counts are global, so keep the background refresh from adding to them mid-test
+		"sareeta.security.revocation.refresh-interval=1h"
+})
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+public class PersistenceIntegrationTests {
+
+	// BCrypt of "admin-password"
+	static final String ADMIN_PASSWORD_HASH = "$2a$04$fe9o43S8keXLpe01GciXsOBnji.lu8V9mmk.W7adpG97kmzHL0ZR6";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper json;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private CartRepository cartRepository;
+
+	@Autowired
+	private ItemRepository itemRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private EntityManager entityManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private UserOrderSummaryRepository summaryRepository;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private ItemSearchIndex searchIndex;
+
+	@Autowired
+	private BCryptPasswordEncoder passwordEncoder;
+
+	@Autowired
+	private PasswordCostMetrics passwordCostMetrics;
+
+	private Statistics statistics;
+
+	@BeforeEach
+	void setup() {
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		statistics.clear();
+	}
+
+	@Test
+	@DisplayName("Submitting a 100-line order batches the order line inserts")
+	public void submitOrder_hundredLines_batchesInserts() {
+		long cartId = createUserWithCart(100).getCart().getId();
+
+		long unbatched = statementsToSubmitOrder(cartId, 1);
+		long batched = statementsToSubmitOrder(cartId, null);
+
+		assertAll(
+				() -> assertTrue(unbatched > 100, "unbatched submit prepared " + unbatched + " statements"),
+				() -> assertTrue(batched <= 10, "batched submit prepared " + batched + " statements"));
+	}
+
+	private long statementsToSubmitOrder(long cartId, Integer jdbcBatchSize) {
+		statistics.clear();
+		transactionTemplate.executeWithoutResult(status -> {
+			if (jdbcBatchSize != null) {
+				entityManager.unwrap(Session.class).setJdbcBatchSize(jdbcBatchSize);
+			}
+			submitOrder(cartId);
+		});
+		return statistics.getPrepareStatementCount();
+	}
+
+	@Test
+	@DisplayName("Order history pages by order id cursor and loads a page's lines in one query")
+	public void getOrderSummaries_pagedWithLines_usesTwoQueriesPerPage() throws Exception {
+		User user = createUserWithCart(3);
+		for (int i = 0; i < 5; i++) {
+			transactionTemplate.executeWithoutResult(status -> submitOrder(user.getCart().getId()));
+		}
+		String header = JWTUtils.TOKEN_PREFIX
+				+ JWTUtils.generateToken(user.getUsername(), user.getId(), user.getCart().getId());
+
+		List<OrderHistoryPage> pages = new ArrayList<>();
+		List<Long> statementsPerPage = new ArrayList<>();
+		Long cursor = null;
+		do {
+			statistics.clear();
+			String response = mockMvc.perform(get("/api/order/history/{username}/summary", user.getUsername())
+							.header(JWTUtils.HEADER_STRING, header)
+							.param("limit", "2")
+							.param("includeLines", "true")
+							.param("before", cursor == null ? null : cursor.toString()))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString();
+			statementsPerPage.add(statistics.getPrepareStatementCount());
+			OrderHistoryPage page = json.readValue(response, OrderHistoryPage.class);
+			pages.add(page);
+			cursor = page.getNextCursor();
+		} while (cursor != null);
+
+		List<OrderSummary> orders = pages.stream().flatMap(page -> page.getOrders().stream()).toList();
+
+		assertAll(
+				() -> assertEquals(List.of(2, 2, 1), pages.stream().map(page -> page.getOrders().size()).toList()),
+				() -> assertEquals(5, orders.stream().map(OrderSummary::getId).distinct().count()),
+				() -> assertTrue(orders.getFirst().getId() > orders.getLast().getId()),
+				() -> assertTrue(orders.stream().allMatch(order -> order.getLines().size() == 3)),
+				() -> assertTrue(orders.stream().allMatch(order -> order.getItemCount() == 3)),
+				() -> assertTrue(statementsPerPage.stream().allMatch(count -> count == 2),
+						"statements per page " + statementsPerPage));
+	}
+
+	@Test
+	@DisplayName("Repeated add to cart reads the item from the second-level cache")
+	public void addToCart_repeated_issuesNoItemSelects() throws Exception {
+		User user = createUserWithCart(0);
+		Item item = transactionTemplate.execute(status -> itemRepository.save(createItem("Cached", Money.of("4.50"))));
+		String header = JWTUtils.TOKEN_PREFIX
+				+ JWTUtils.generateToken(user.getUsername(), user.getId(), user.getCart().getId());
+		ModifyCartRequest request = new ModifyCartRequest();
+		request.setUsername(user.getUsername());
+		request.setItemId(item.getId());
+		request.setQuantity(1);
+
+		statistics.clear();
+		for (int i = 0; i < 5; i++) {
+			mockMvc.perform(post("/api/cart/addToCart")
+							.header(JWTUtils.HEADER_STRING, header)
+							.contentType(MediaType.APPLICATION_JSON)
+							.content(json.writeValueAsString(request)))
+					.andExpect(status().isOk());
+		}
+
+		EntityStatistics itemStatistics = statistics.getEntityStatistics(Item.class.getName());
+		Cart cart = transactionTemplate.execute(status -> {
+			Cart loaded = cartRepository.findById(user.getCart().getId()).orElseThrow();
+			loaded.getLines().size();
+			return loaded;
+		});
+
+		assertAll(
+				() -> assertEquals(0, itemStatistics.getLoadCount()),
+				() -> assertEquals(0, itemStatistics.getFetchCount()),
+				() -> assertTrue(itemStatistics.getCacheHitCount() >= 5),
+				() -> assertEquals(5, cart.getLines().getFirst().getQuantity()));
+	}
+
+	@Test
+	@DisplayName("64 threads adding to one cart lose no quantity")
+	public void addToCart_concurrentWritersOnOneCart_losesNoQuantity() throws Exception {
+		int threads = 64;
+		int addsPerThread = 10;
+		Item item = transactionTemplate.execute(status -> itemRepository.save(createItem("Contended", Money.of("0.75"))));
+		User user = createUserWithCart(0);
+		String header = JWTUtils.TOKEN_PREFIX
+				+ JWTUtils.generateToken(user.getUsername(), user.getId(), user.getCart().getId());
+		String body = addToCartBody(user, item);
+		double conflictsBefore = meterRegistry.counter("sareeta.cart.conflicts").count();
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<List<Integer>>> writers = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			writers.add(pool.submit(() -> {
+				start.await();
+				List<Integer> statuses = new ArrayList<>();
+				for (int i = 0; i < addsPerThread; i++) {
+					statuses.add(mockMvc.perform(post("/api/cart/addToCart")
+									.header(JWTUtils.HEADER_STRING, header)
+									.contentType(MediaType.APPLICATION_JSON)
+									.content(body))
+							.andReturn().getResponse().getStatus());
+				}
+				return statuses;
+			}));
+		}
+		start.countDown();
+		List<Integer> statuses = new ArrayList<>();
+		for (Future<List<Integer>> writer : writers) {
+			statuses.addAll(writer.get(2, TimeUnit.MINUTES));
+		}
+		pool.shutdown();
+
+		Cart cart = transactionTemplate.execute(status -> {
+			Cart loaded = cartRepository.findById(user.getCart().getId()).orElseThrow();
+			loaded.getLines().size();
+			return loaded;
+		});
+		double conflicts = meterRegistry.counter("sareeta.cart.conflicts").count() - conflictsBefore;
+
+		assertAll(
+				() -> assertTrue(statuses.stream().allMatch(status -> status == 200), "statuses " + statuses),
+				() -> assertEquals(1, cart.getLines().size()),
+				() -> assertEquals(threads * addsPerThread, cart.getLines().getFirst().getQuantity()),
+				() -> assertEquals(Money.of("0.75").minorUnits() * threads * addsPerThread, cart.getTotal().minorUnits()),
+				// Only the writers racing to insert the line can conflict; once it exists adds are applied in place
+				() -> assertTrue(conflicts < threads, conflicts + " conflicts retried"));
+	}
+
+	private String addToCartBody(User user, Item item) throws Exception {
+		ModifyCartRequest request = new ModifyCartRequest();
+		request.setUsername(user.getUsername());
+		request.setItemId(item.getId());
+		request.setQuantity(1);
+		return json.writeValueAsString(request);
+	}
+
+	@Test
+	@DisplayName("Write-behind cart edits reach the database only when flushed, including evicted carts")
+	public void writeBehindStore_editsThenFlush_writesLinesAndTotals() {
+		// Room for one cart of one line, so the second cart edited evicts the first before it is written,
+		// and for one evicted cart, so the edit after that writes it
+		WriteBehindCartStore store = new WriteBehindCartStore(cartRepository, itemRepository, transactionManager,
+				new SimpleMeterRegistry(), Duration.ofHours(1), 2, 1);
+		User first = createUserWithCart(0);
+		User second = createUserWithCart(0);
+		Item item = transactionTemplate.execute(status -> itemRepository.save(createItem("Buffered", Money.of("2.00"))));
+		long firstCartId = first.getCart().getId();
+		long secondCartId = second.getCart().getId();
+
+		store.update(firstCartId, cart -> cart.addItem(item, 3));
+		statistics.clear();
+		Cart inMemory = store.update(firstCartId, cart -> {
+			cart.removeItem(item, 1);
+			return cart;
+		}).orElseThrow();
+		long statementsForEdit = statistics.getPrepareStatementCount();
+		Cart beforeFlush = loadCart(firstCartId);
+
+		store.flush(firstCartId);
+		Cart afterFlush = loadCart(firstCartId);
+
+		store.update(firstCartId, cart -> cart.addItem(item, 1));
+		store.update(secondCartId, cart -> cart.addItem(item, 4));
+		Cart firstAfterEviction = loadCart(firstCartId);
+		store.update(secondCartId, cart -> cart.addItem(item, 1));
+		Cart firstAtEvictedLimit = loadCart(firstCartId);
+		store.stop();
+		Cart firstAfterStop = loadCart(firstCartId);
+		Cart secondAfterStop = loadCart(secondCartId);
+
+		assertAll(
+				() -> assertEquals(0, statementsForEdit),
+				() -> assertEquals(2, inMemory.getLines().getFirst().getQuantity()),
+				() -> assertEquals(Money.of("4.00"), inMemory.getTotal()),
+				() -> assertEquals(first.getUsername(), inMemory.getUser().getUsername()),
+				() -> assertNull(inMemory.getUser().getPassword()),
+				() -> assertTrue(beforeFlush.getLines().isEmpty()),
+				() -> assertEquals(2, afterFlush.getLines().getFirst().getQuantity()),
+				() -> assertEquals(Money.of("4.00"), afterFlush.getTotal()),
+				() -> assertEquals(2, firstAfterEviction.getLines().getFirst().getQuantity()),
+				() -> assertEquals(3, firstAtEvictedLimit.getLines().getFirst().getQuantity()),
+				() -> assertEquals(3, firstAfterStop.getLines().getFirst().getQuantity()),
+				() -> assertEquals(Money.of("6.00"), firstAfterStop.getTotal()),
+				() -> assertEquals(5, secondAfterStop.getLines().getFirst().getQuantity()),
+				() -> assertEquals(Money.of("10.00"), secondAfterStop.getTotal()),
+				() -> assertFalse(store.update(Long.MAX_VALUE, cart -> cart).isPresent()));
+	}
+
+	@Test
+	@DisplayName("Queued orders are written in batches on stop, and a full queue or an empty cart is refused")
+	public void orderPipeline_submitThenStop_writesQueuedOrders() {
+		User user = createUserWithCart(3);
+		User withEmptyCart = createUserWithCart(0);
+		OrderSubmissionPipeline full = new OrderSubmissionPipeline(jdbcTemplate, orderService, transactionManager,
+				entityManagerFactory, new SimpleMeterRegistry(), 1, 0, 50, Duration.ofMinutes(1));
+		OrderSubmissionPipeline pipeline = new OrderSubmissionPipeline(jdbcTemplate, orderService, transactionManager,
+				entityManagerFactory, new SimpleMeterRegistry(), 10, 1, 50, Duration.ofMinutes(1));
+		full.start();
+		pipeline.start();
+
+		List<Optional<Long>> refused = new ArrayList<>();
+		List<Long> accepted = new ArrayList<>();
+		transactionTemplate.executeWithoutResult(status -> {
+			Cart emptyCart = cartRepository.findById(withEmptyCart.getCart().getId()).orElseThrow();
+			assertThrows(IllegalArgumentException.class, () -> pipeline.submit(emptyCart));
+			Cart cart = cartRepository.findById(user.getCart().getId()).orElseThrow();
+			refused.add(full.submit(cart));
+			refused.add(full.submit(cart));
+			for (int i = 0; i < 3; i++) {
+				accepted.add(pipeline.submit(cart).orElseThrow());
+			}
+		});
+		long waiting = refused.getFirst().orElseThrow();
+		pipeline.stop();
+		full.stop();
+		List<UserOrder> orders = orderRepository.findByUserId(user.getId());
+
+		assertAll(
+				() -> assertFalse(refused.get(1).isPresent()),
+				() -> assertEquals(Optional.of(OrderStatusResponse.Status.QUEUED), full.status(waiting, user.getId())),
+				() -> assertFalse(full.status(waiting, user.getId() + 1).isPresent()),
+				() -> assertTrue(accepted.stream().allMatch(id ->
+						pipeline.status(id, user.getId()).equals(Optional.of(OrderStatusResponse.Status.PERSISTED)))),
+				() -> assertEquals(accepted, orders.stream().map(UserOrder::getId).sorted().toList()),
+				() -> assertTrue(orders.stream().allMatch(order -> order.getLines().size() == 3)),
+				() -> assertTrue(orders.stream().allMatch(order -> order.getTotal().equals(Money.ofMinor(303)))),
+				() -> assertEquals(3, summaryRepository.findById(user.getId()).orElseThrow().getOrderCount()),
+				() -> assertTrue(orderRepository.findByUserId(withEmptyCart.getId()).isEmpty()));
+	}
+
+	@Test
+	@DisplayName("Two first orders of a user placed at once are both counted in the order summary")
+	public void placeOrder_concurrentFirstOrders_countsBothInSummary() throws Exception {
+		User user = createUserWithCart(1);
+		Cart cart = loadCart(user.getCart().getId());
+		CountDownLatch summaryInserted = new CountDownLatch(1);
+		CountDownLatch commitFirst = new CountDownLatch(1);
+		// The first order inserts the summary and holds its transaction open, so the second also finds no
+		// summary and its insert waits on the first one's key
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Future<?> first = executor.submit(() -> transactionTemplate.executeWithoutResult(status -> {
+			UserOrder order = orderRepository.save(UserOrder.createFromCart(cart));
+			orderService.recordOrders(user.getId(), 1, order.getTotal(), order.getCreatedAt());
+			summaryInserted.countDown();
+			try {
+				commitFirst.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		try {
+			assertTrue(summaryInserted.await(10, TimeUnit.SECONDS));
+			Thread second = new Thread(() -> orderService.placeOrder(cart));
+			List<Throwable> secondFailure = new ArrayList<>();
+			second.setUncaughtExceptionHandler((thread, e) -> secondFailure.add(e));
+			second.start();
+			long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+			while (second.getState() != Thread.State.TIMED_WAITING && second.getState() != Thread.State.WAITING
+					&& second.isAlive() && System.nanoTime() < deadline) {
+				Thread.sleep(10);
+			}
+			commitFirst.countDown();
+			first.get(10, TimeUnit.SECONDS);
+			second.join(TimeUnit.SECONDS.toMillis(10));
+
+			UserOrderSummary summary = summaryRepository.findById(user.getId()).orElseThrow();
+			assertAll(
+					() -> assertEquals(List.of(), secondFailure),
+					() -> assertEquals(2, orderRepository.findByUserId(user.getId()).size()),
+					() -> assertEquals(2, summary.getOrderCount()));
+		} finally {
+			commitFirst.countDown();
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	@DisplayName("Order summary is backfilled from earlier orders and then kept up by each submit")
+	public void getOrderSummary_afterBackfillAndSubmit_countsEveryOrder() throws Exception {
+		User user = createUserWithCart(2);
+		// Orders placed before summaries were kept, one of them before order times were recorded
+		transactionTemplate.executeWithoutResult(status -> {
+			submitOrder(user.getCart().getId());
+			submitOrder(user.getCart().getId()).setCreatedAt(null);
+		});
+		int backfilled = transactionTemplate.execute(status -> summaryRepository.insertMissingFromOrders());
+		int backfilledAgain = transactionTemplate.execute(status -> summaryRepository.insertMissingFromOrders());
+
+		mockMvc.perform(post("/api/order/submit/{username}", user.getUsername())
+						.header(JWTUtils.HEADER_STRING, JWTUtils.TOKEN_PREFIX
+								+ JWTUtils.generateToken(user.getUsername(), user.getId(), user.getCart().getId())))
+				.andExpect(status().isOk());
+		UserOrderSummary summary = json.readValue(mockMvc.perform(get("/api/order/summary/{username}", user.getUsername())
+						.header(JWTUtils.HEADER_STRING, JWTUtils.TOKEN_PREFIX
+								+ JWTUtils.generateToken(user.getUsername(), user.getId(), user.getCart().getId())))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString(), UserOrderSummary.class);
+		Instant lastOrderAt = orderRepository.findByUserId(user.getId()).stream()
+				.map(UserOrder::getCreatedAt)
+				.filter(Objects::nonNull)
+				.max(Comparator.naturalOrder())
+				.orElseThrow();
+
+		assertAll(
+				() -> assertTrue(backfilled >= 1),
+				() -> assertEquals(0, backfilledAgain),
+				() -> assertEquals(3, summary.getOrderCount()),
+				() -> assertEquals(Money.ofMinor(201).times(3), summary.getTotalSpend()),
+				() -> assertEquals(lastOrderAt, summary.getLastOrderAt()));
+	}
+
+	private Cart loadCart(long cartId) {
+		return transactionTemplate.execute(status -> {
+			Cart loaded = cartRepository.findById(cartId).orElseThrow();
+			loaded.getLines().size();
+			return loaded;
+		});
+	}
+
+	@Test
+	@DisplayName("Statements per request, controller and repository timings are scraped by Prometheus")
+	public void addToCart_thenScrapePrometheus_exposesRequestMetrics() throws Exception {
+		User user = createUserWithCart(0);
+		Item item = transactionTemplate.execute(status -> itemRepository.save(createItem("Metered", Money.of("1.25"))));
+		ModifyCartRequest request = new ModifyCartRequest();
+		request.setUsername(user.getUsername());
+		request.setItemId(item.getId());
+		request.setQuantity(2);
+		DistributionSummary before = statementsPerRequest("/api/cart/addToCart");
+		long requestsBefore = before == null ? 0 : before.count();
+		double statementsBefore = before == null ? 0 : before.totalAmount();
+
+		statistics.clear();
+		mockMvc.perform(post("/api/cart/addToCart")
+						.header(JWTUtils.HEADER_STRING, JWTUtils.TOKEN_PREFIX
+								+ JWTUtils.generateToken(user.getUsername(), user.getId(), user.getCart().getId()))
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(json.writeValueAsString(request)))
+				.andExpect(status().isOk());
+		long prepared = statistics.getPrepareStatementCount();
+		DistributionSummary statements = statementsPerRequest("/api/cart/addToCart");
+		// The user lookup of a login runs on the login pool and still counts towards the request
+		DistributionSummary loginsBefore = statementsPerRequest(JWTUtils.LOGIN_URL);
+		double loginStatementsBefore = loginsBefore == null ? 0 : loginsBefore.totalAmount();
+		mockMvc.perform(post(JWTUtils.LOGIN_URL)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(json.writeValueAsString(Map.of("username", "nobody-" + UUID.randomUUID(),
+								"password", "password"))))
+				.andExpect(status().isUnauthorized());
+		double loginStatements = statementsPerRequest(JWTUtils.LOGIN_URL).totalAmount() - loginStatementsBefore;
+
+		String scrape = mockMvc.perform(get("/actuator/prometheus"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+
+		assertAll(
+				() -> assertEquals(requestsBefore + 1, statements.count()),
+				() -> assertEquals(prepared, (long) (statements.totalAmount() - statementsBefore)),
+				() -> assertEquals(1, loginStatements),
+				() -> assertTrue(scrape.lines().anyMatch(line -> line.startsWith("sareeta_controller_seconds_bucket")
+						&& line.contains("method=\"addTocart\""))),
+				() -> assertTrue(scrape.lines().anyMatch(line -> line.startsWith("sareeta_jdbc_statements_count")
+						&& line.contains("uri=\"/api/cart/addToCart\""))),
+				() -> assertTrue(scrape.lines().anyMatch(line -> line.startsWith("spring_data_repository_invocations_seconds_bucket")
+						&& line.contains("repository=\"CartRepository\""))),
+				() -> assertTrue(scrape.contains("sareeta_security_token_verification_seconds_bucket")));
+	}
+
+	@Test
+	@DisplayName("Item search index follows committed item writes and ignores rolled back ones")
+	public void searchIndex_itemWrites_appliedAfterCommit() {
+		Item item = transactionTemplate.execute(status -> itemRepository.save(createItem("Zephyr lantern", Money.of("9.99"))));
+		List<Long> afterInsert = searchIds("zephyr");
+
+		transactionTemplate.executeWithoutResult(status -> {
+			itemRepository.save(createItem("Quokka lantern", Money.of("9.99")));
+			itemRepository.flush();
+			status.setRollbackOnly();
+		});
+		List<Long> afterRollback = searchIds("quokka");
+
+		transactionTemplate.executeWithoutResult(status -> {
+			Item renamed = itemRepository.findById(item.getId()).orElseThrow();
+			renamed.setName("Mistral lantern");
+			renamed.setDescription("Mistral lantern description");
+		});
+		List<Long> renamedFrom = searchIds("zephyr");
+		List<Long> renamedTo = searchIds("mistral");
+
+		transactionTemplate.executeWithoutResult(status -> itemRepository.deleteById(item.getId()));
+		List<Long> afterDelete = searchIds("mistral");
+
+		assertAll(
+				() -> assertEquals(List.of(item.getId()), afterInsert),
+				() -> assertEquals(List.of(), afterRollback),
+				() -> assertEquals(List.of(), renamedFrom),
+				() -> assertEquals(List.of(item.getId()), renamedTo),
+				() -> assertEquals(List.of(), afterDelete));
+	}
+
+	@Test
+	@DisplayName("Catalog import upserts CSV and NDJSON rows in batches, refreshes caches and reports rejected rows")
+	public void importCatalog_csvAndNdjson_upsertsItemsAndRejectsBadRows() throws Exception {
+		Item existing = transactionTemplate.execute(status -> itemRepository.save(createItem("Saffron lamp", Money.of("10.00"))));
+		itemRepository.findById(existing.getId());
+		String admin = adminToken();
+		String csv = """
+				id,name,price,description
+				%d,Saffron lamp,12.50,"Brighter, now"
+				,Saffron chair,"30","Two
+				lines"
+				,,1.00,no name
+				999999,Saffron ghost,1.00,no such item
+				,Saffron table,abc,bad price
+				900,Saffron rug,5.00,fixed catalog row
+				""".formatted(existing.getId());
+		String ndjson = """
+				{"name": "Saffron desk", "price": 99.99, "description": "Oak"}
+				not json
+				""";
+
+		mockMvc.perform(post("/api/admin/catalog/import")
+						.header(JWTUtils.HEADER_STRING, JWTUtils.TOKEN_PREFIX + JWTUtils.generateToken("shopper"))
+						.contentType("text/csv")
+						.content(csv))
+				.andExpect(status().isForbidden());
+		CatalogImportResponse csvImport = json.readValue(mockMvc.perform(post("/api/admin/catalog/import")
+						.header(JWTUtils.HEADER_STRING, admin)
+						.contentType("text/csv")
+						.content(csv))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString(), CatalogImportResponse.class);
+		CatalogImportResponse ndjsonImport = json.readValue(mockMvc.perform(post("/api/admin/catalog/import")
+						.header(JWTUtils.HEADER_STRING, admin)
+						.contentType("application/x-ndjson")
+						.content(ndjson))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString(), CatalogImportResponse.class);
+
+		Item updated = itemRepository.findById(existing.getId()).orElseThrow();
+		List<Item> chairs = itemRepository.findByName("Saffron chair");
+		assertAll(
+				() -> assertEquals(6, csvImport.getRowsRead()),
+				() -> assertEquals(3, csvImport.getRowsWritten()),
+				() -> assertEquals(List.of(5L, 6L, 7L), csvImport.getRejections().stream()
+						.map(CatalogImportResponse.Rejection::getLine).sorted().toList()),
+				() -> assertEquals(Money.of("12.50"), updated.getPrice()),
+				() -> assertEquals("Brighter, now", updated.getDescription()),
+				() -> assertEquals(1, chairs.size()),
+				() -> assertEquals("Two\nlines", chairs.getFirst().getDescription()),
+				() -> assertEquals(List.of(chairs.getFirst().getId()), searchIds("saffron chair")),
+				() -> assertEquals("Saffron rug", itemRepository.findById(900L).orElseThrow().getName()),
+				() -> assertEquals(1, ndjsonImport.getRowsWritten()),
+				() -> assertEquals(2L, ndjsonImport.getRejections().getFirst().getLine()),
+				() -> assertEquals(Money.of("99.99"), itemRepository.findByName("Saffron desk").getFirst().getPrice()));
+	}
+
+	@Test
+	@DisplayName("Bulk user creation creates users with carts and reports taken and invalid usernames per row")
+	public void createUsersInBulk_mixedRows_createsValidRowsAndReportsTheRest() throws Exception {
+		User existing = createUserWithCart(0);
+		String prefix = "bulk-" + UUID.randomUUID() + "-";
+		// The last row passes validation but is longer than the column, so only the database rejects it
+		List<String> usernames = List.of(prefix + "a", prefix + "b", existing.getUsername(), prefix + "a",
+				prefix + "c", prefix + "d".repeat(300));
+		List<CreateUserRequest> requests = new ArrayList<>();
+		for (int i = 0; i < usernames.size(); i++) {
+			CreateUserRequest request = new CreateUserRequest();
+			request.setUsername(usernames.get(i));
+			request.setPassword(i == 4 ? "short" : "password-" + usernames.get(i));
+			requests.add(request);
+		}
+
+		BulkCreateUsersResponse response = json.readValue(mockMvc.perform(post("/api/admin/users/bulk")
+						.header(JWTUtils.HEADER_STRING, adminToken())
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(json.writeValueAsString(requests)))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString(), BulkCreateUsersResponse.class);
+
+		User created = userRepository.findByUsername(prefix + "b");
+		assertAll(
+				() -> assertEquals(2, response.getCreated()),
+				() -> assertEquals(List.of(UserCreationResult.Status.CREATED, UserCreationResult.Status.CREATED,
+								UserCreationResult.Status.DUPLICATE_USERNAME, UserCreationResult.Status.DUPLICATE_USERNAME,
+								UserCreationResult.Status.INVALID, UserCreationResult.Status.INVALID),
+						response.getResults().stream().map(UserCreationResult::getStatus).toList()),
+				() -> assertEquals("Rejected by the database", response.getResults().get(5).getReason()),
+				() -> assertEquals(created.getId(), response.getResults().get(1).getUserId()),
+				() -> assertTrue(passwordEncoder.matches("password-" + prefix + "b", created.getPassword())),
+				() -> assertNotNull(cartRepository.findByUser(created)));
+	}
+
+	@Test
+	@DisplayName("A login re-hashes a password stored at another BCrypt cost and the cost metrics count it")
+	public void login_passwordHashedAtOtherCost_rehashesAtEncoderStrength() throws Exception {
+		int strength = ((CalibratedBCryptPasswordEncoder) passwordEncoder).getStrength();
+		User user = createUserWithCart(0);
+		userRepository.updatePassword(user.getUsername(), user.getPassword(),
+				new BCryptPasswordEncoder(4).encode("old-cost-password"));
+
+		mockMvc.perform(post(JWTUtils.LOGIN_URL)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(json.writeValueAsString(Map.of("username", user.getUsername(),
+								"password", "old-cost-password"))))
+				.andExpect(status().isOk());
+		passwordCostMetrics.refresh();
+
+		String rehashed = userRepository.findByUsername(user.getUsername()).getPassword();
+		assertAll(
+				() -> assertTrue(rehashed.startsWith(String.format("$2a$%02d$", strength)), rehashed),
+				() -> assertTrue(passwordEncoder.matches("old-cost-password", rehashed)),
+				() -> assertFalse(passwordEncoder.upgradeEncoding(rehashed)),
+				() -> assertNotNull(meterRegistry.find("sareeta.security.bcrypt.stored-cost")
+						.tag("cost", String.format("%02d", strength)).gauge()),
+				() -> assertEquals(strength, meterRegistry.get("sareeta.security.bcrypt.strength").gauge().value()));
+	}
+
+	@Test
+	@DisplayName("Admin endpoints need the admin role from login, which sign up cannot give")
+	public void adminEndpoints_roleFromLogin_onlyAdminsAllowed() throws Exception {
+		String username = "admin-candidate-" + UUID.randomUUID();
+		CreateUserRequest signUp = new CreateUserRequest();
+		signUp.setUsername(username);
+		signUp.setPassword("candidate-password");
+		signUp.setConfirmPassword("candidate-password");
+		mockMvc.perform(post(JWTUtils.SIGN_UP_URL)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(json.writeValueAsString(signUp)))
+				.andExpect(status().isOk());
+
+		String candidate = login(username, "candidate-password");
+		mockMvc.perform(get("/api/admin/catalog/imports").header(JWTUtils.HEADER_STRING, candidate))
+				.andExpect(status().isForbidden());
+
+		String admin = login("catalog-admin", "admin-password");
+		mockMvc.perform(get("/api/admin/catalog/imports").header(JWTUtils.HEADER_STRING, admin))
+				.andExpect(status().isOk());
+		mockMvc.perform(put("/api/admin/users/{username}/admin", username).header(JWTUtils.HEADER_STRING, admin))
+				.andExpect(status().isNoContent());
+
+		mockMvc.perform(get("/api/admin/catalog/imports")
+						.header(JWTUtils.HEADER_STRING, login(username, "candidate-password")))
+				.andExpect(status().isOk());
+	}
+
+	private String login(String username, String password) throws Exception {
+		return mockMvc.perform(post(JWTUtils.LOGIN_URL)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(json.writeValueAsString(Map.of("username", username, "password", password))))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(JWTUtils.HEADER_STRING);
+	}
+
+	private static String adminToken() {
+		return JWTUtils.TOKEN_PREFIX + JWTUtils.generateToken("catalog-admin", null, null, List.of(JWTUtils.ADMIN_ROLE));
+	}
+
+	private List<Long> searchIds(String query) {
+		return searchIndex.search(query, 10).stream().map(Item::getId).toList();
+	}
+
+	private DistributionSummary statementsPerRequest(String uri) {
+		return meterRegistry.find("sareeta.jdbc.statements").tag("uri", uri).summary();
+	}
+
+	private UserOrder submitOrder(long cartId) {
+		Cart cart = cartRepository.findById(cartId).orElseThrow();
+		return orderRepository.save(UserOrder.createFromCart(cart));
+	}
+
+	private User createUserWithCart(int distinctItems) {
+		return transactionTemplate.execute(status -> {
+			List<Item> items = new ArrayList<>();
+			for (int i = 0; i < distinctItems; i++) {
+				items.add(createItem("Item " + i, Money.ofMinor(100 + i)));
+			}
+			itemRepository.saveAll(items);
+
+			User user = new User();
+			user.setUsername("user-" + UUID.randomUUID());
+			user.setPassword("password");
+			Cart cart = new Cart();
+			cart.setUser(user);
+			user.setCart(cart);
+			items.forEach(cart::addItem);
+			return userRepository.save(user);
+		});
+	}
+
+	private Item createItem(String name, Money price) {
+		Item item = new Item();
+		item.setName(name);
+		item.setPrice(price);
+		item.setDescription(name + " description");
+
+		return item;
+	}
+}
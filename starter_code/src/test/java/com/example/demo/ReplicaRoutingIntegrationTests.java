@@ -0,0 +1,138 @@
+package com.example.demo;
+
+import com.example.demo.datasource.LocalReplicator;
+import com.example.demo.model.money.Money;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.UserOrder;
+import com.example.demo.model.persistence.repositories.ItemRepository;
+import com.example.demo.model.persistence.repositories.OrderRepository;
+import com.example.demo.model.requests.CreateUserRequest;
+import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.security.JWTUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs with a second H2 database as a replica that trails the primary by a couple of seconds, to
+ * check which reads are routed to it and that users still see their own writes.
+ */
+@SpringBootTest(properties = {
+		"spring.datasource.url=jdbc:h2:mem:routing-primary;NON_KEYWORDS=user",
+		"sareeta.datasource.replicas=jdbc:h2:mem:routing-replica;NON_KEYWORDS=user",
+		"sareeta.datasource.local-replication.enabled=true",
+		"sareeta.datasource.local-replication.lag=2s",
+		// The JCache manager behind the second-level cache is shared by every context in the JVM, and
+		// this database's ids overlap those of the other test contexts
+		"spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+		"spring.jpa.properties.hibernate.cache.use_query_cache=false"
+})
+@AutoConfigureMockMvc
+public class ReplicaRoutingIntegrationTests {
+
+	private static final String PASSWORD = "routing-password";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper json;
+
+	@Autowired
+	private ItemRepository itemRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private TransactionTemplate transactionTemplate;
+
+	@Autowired
+	private LocalReplicator replicator;
+
+	@Test
+	@DisplayName("Read-only transactions go to the replica, which catches up after the lag")
+	public void readOnlyTransaction_replicaBehind_seesWriteOnceReplicated() throws Exception {
+		Item item = new Item();
+		item.setName("Replicated lamp");
+		item.setPrice(Money.of("12.00"));
+		item.setDescription("Replicated lamp description");
+		long id = transactionTemplate.execute(status -> itemRepository.save(item)).getId();
+
+		// A query rather than findById, which the second-level cache would answer
+		List<Long> fromReplica = itemIdsFrom(id);
+		List<Long> fromPrimary = transactionTemplate.execute(status -> itemIdsFrom(id));
+		replicator.awaitCaughtUp();
+		List<Long> replicated = itemIdsFrom(id);
+
+		assertAll(
+				() -> assertEquals(List.of(), fromReplica),
+				() -> assertEquals(List.of(id), fromPrimary),
+				() -> assertEquals(List.of(id), replicated));
+	}
+
+	private List<Long> itemIdsFrom(long id) {
+		return itemRepository.findByIdGreaterThanOrderByIdAsc(id - 1, Limit.of(1)).stream()
+				.map(Item::getId)
+				.toList();
+	}
+
+	@Test
+	@DisplayName("Order history right after submit reads the primary while the replica is behind")
+	public void submitOrder_thenHistory_readsOwnWriteFromPrimary() throws Exception {
+		String username = "routing-" + UUID.randomUUID();
+		CreateUserRequest createUser = new CreateUserRequest();
+		createUser.setUsername(username);
+		createUser.setPassword(PASSWORD);
+		createUser.setConfirmPassword(PASSWORD);
+		JsonNode user = json.readTree(mockMvc.perform(post("/api/user/create")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(json.writeValueAsString(createUser)))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString());
+		String header = mockMvc.perform(post("/login")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(json.writeValueAsString(Map.of("username", username, "password", PASSWORD))))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(JWTUtils.HEADER_STRING);
+
+		ModifyCartRequest addToCart = new ModifyCartRequest();
+		addToCart.setUsername(username);
+		addToCart.setItemId(1L);
+		addToCart.setQuantity(2);
+		mockMvc.perform(post("/api/cart/addToCart")
+						.header(JWTUtils.HEADER_STRING, header)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(json.writeValueAsString(addToCart)))
+				.andExpect(status().isOk());
+		mockMvc.perform(post("/api/order/submit/{username}", username).header(JWTUtils.HEADER_STRING, header))
+				.andExpect(status().isOk());
+
+		JsonNode history = json.readTree(mockMvc.perform(get("/api/order/history/{username}/summary", username)
+						.header(JWTUtils.HEADER_STRING, header))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString());
+		List<UserOrder> onReplica = orderRepository.findByUserId(user.get("id").asLong());
+
+		assertAll(
+				() -> assertEquals(1, history.get("orders").size()),
+				() -> assertEquals(List.of(), onReplica));
+	}
+}
@@ -1,5 +1,8 @@
 package com.example.demo;
 
+import com.example.demo.concurrent.Bulkhead;
+import com.example.demo.concurrent.BulkheadFullException;
+import com.example.demo.model.money.Money;
 import com.example.demo.model.persistence.Cart;
 import com.example.demo.model.persistence.Item;
 import com.example.demo.model.persistence.User;
@@ -8,8 +11,15 @@ import com.example.demo.model.persistence.repositories.CartRepository;
 import com.example.demo.model.persistence.repositories.ItemRepository;
 import com.example.demo.model.persistence.repositories.OrderRepository;
 import com.example.demo.model.persistence.repositories.UserRepository;
+import com.example.demo.model.requests.BatchModifyCartRequest;
+import com.example.demo.model.requests.CartOperation;
 import com.example.demo.model.requests.CreateUserRequest;
 import com.example.demo.model.requests.ModifyCartRequest;
+import com.example.demo.model.responses.BatchModifyCartResponse;
+import com.example.demo.model.responses.CartOperationResult;
+import com.example.demo.search.ItemSearchIndex;
+import com.example.demo.security.CachingUserDetailsService;
+import com.example.demo.security.JWTUtils;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import static org.junit.jupiter.api.Assertions.*;
@@ -21,13 +31,13 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.http.MediaType;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -58,6 +68,15 @@ public class SareetaApplicationTests {
 	@MockBean
 	private BCryptPasswordEncoder passwordEncoder;
 
+	@SpyBean
+	private Bulkhead loginBulkhead;
+
+	@Autowired
+	private CachingUserDetailsService userDetailsService;
+
+	@Autowired
+	private ItemSearchIndex searchIndex;
+
 	@Autowired
 	private ObjectMapper json;
 
@@ -87,6 +106,8 @@ public class SareetaApplicationTests {
 		when(userRepository.save(any(User.class))).thenReturn(mockUser);
 		when(userRepository.findById(1L)).thenReturn(Optional.ofNullable(mockUser));
 		when(userRepository.findByUsername("user")).thenReturn(mockUser);
+
+		userDetailsService.evictAll();
 	}
 
 	@Test
@@ -128,6 +149,72 @@ public class SareetaApplicationTests {
 				.andExpect(status().isBadRequest());
 	}
 
+	@Test
+	@DisplayName("Login with valid credentials returns a bearer token")
+	public void login_withValidCredentials_returnsToken() throws Exception {
+		when(passwordEncoder.matches("password", "password")).thenReturn(true);
+
+		MvcResult result = mockMvc.perform(post("/login")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"username\":\"user\",\"password\":\"password\"}"))
+				.andExpect(status().isOk())
+				.andReturn();
+
+		String header = result.getResponse().getHeader(JWTUtils.HEADER_STRING);
+
+		assertAll(
+				() -> assertNotNull(header),
+				() -> assertEquals("user", JWTUtils.getUsernameFromToken(header)),
+				() -> assertEquals(mockUser.getId(),
+						JWTUtils.verifyToken(header).getClaim(JWTUtils.USER_ID_CLAIM).asLong()));
+	}
+
+	@Test
+	@DisplayName("Repeated logins load the user once, while unknown usernames are looked up every time")
+	public void login_repeated_usesUserDetailsCacheForKnownUsersOnly() throws Exception {
+		when(passwordEncoder.matches("password", "password")).thenReturn(true);
+		String credentials = "{\"username\":\"user\",\"password\":\"password\"}";
+
+		for (int i = 0; i < 3; i++) {
+			mockMvc.perform(post("/login").contentType(MediaType.APPLICATION_JSON).content(credentials))
+					.andExpect(status().isOk());
+		}
+		verify(userRepository, times(1)).findByUsername("user");
+
+		// Nothing is cached for a name with no user, so one signing up later can log in straight away
+		for (int i = 0; i < 2; i++) {
+			mockMvc.perform(post("/login")
+							.contentType(MediaType.APPLICATION_JSON)
+							.content("{\"username\":\"newcomer\",\"password\":\"password\"}"))
+					.andExpect(status().isUnauthorized());
+		}
+		verify(userRepository, times(2)).findByUsername("newcomer");
+	}
+
+	@Test
+	@DisplayName("Login with an unknown username or a wrong password is rejected with 401")
+	public void login_withBadCredentials_returnsUnauthorized() throws Exception {
+		mockMvc.perform(post("/login")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"username\":\"nobody\",\"password\":\"password\"}"))
+				.andExpect(status().isUnauthorized());
+		mockMvc.perform(post("/login")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"username\":\"user\",\"password\":\"wrong-password\"}"))
+				.andExpect(status().isUnauthorized());
+	}
+
+	@Test
+	@DisplayName("Login fails fast with 503 when the login pool is saturated")
+	public void login_withLoginPoolFull_returnsServiceUnavailable() throws Exception {
+		doThrow(new BulkheadFullException("login")).when(loginBulkhead).call(any());
+
+		mockMvc.perform(post("/login")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content("{\"username\":\"user\",\"password\":\"password\"}"))
+				.andExpect(status().isServiceUnavailable());
+	}
+
 	@Test
 	@WithMockUser(username = "user")
 	@DisplayName("Authenticated user can retrieve a user by id")
@@ -166,6 +253,36 @@ public class SareetaApplicationTests {
 				.andExpect(status().isForbidden());
 	}
 
+	@Test
+	@DisplayName("Repeated requests with the same bearer token are authenticated")
+	public void findUserById_withBearerToken_returnsUser() throws Exception {
+		String header = JWTUtils.TOKEN_PREFIX + JWTUtils.generateToken("user");
+
+		for (int i = 0; i < 3; i++) {
+			mockMvc.perform(get("/api/user/id/1")
+							.header(JWTUtils.HEADER_STRING, header)
+							.contentType(MediaType.APPLICATION_JSON))
+					.andExpect(status().isOk());
+		}
+	}
+
+	@Test
+	@DisplayName("Logout revokes only the bearer token it was made with")
+	public void logout_withBearerToken_revokesThatToken() throws Exception {
+		String header = JWTUtils.TOKEN_PREFIX + JWTUtils.generateToken("user");
+		String otherHeader = JWTUtils.TOKEN_PREFIX + JWTUtils.generateToken("user");
+		mockMvc.perform(get("/api/user/id/1").header(JWTUtils.HEADER_STRING, header))
+				.andExpect(status().isOk());
+
+		mockMvc.perform(post("/api/user/logout").header(JWTUtils.HEADER_STRING, header))
+				.andExpect(status().isNoContent());
+
+		mockMvc.perform(get("/api/user/id/1").header(JWTUtils.HEADER_STRING, header))
+				.andExpect(status().isForbidden());
+		mockMvc.perform(get("/api/user/id/1").header(JWTUtils.HEADER_STRING, otherHeader))
+				.andExpect(status().isOk());
+	}
+
 	@Test
 	@WithMockUser(username = "user")
 	@DisplayName("Authenticated user can retrieve a user by username")
@@ -217,7 +334,48 @@ public class SareetaApplicationTests {
 		assertAll(
 				() -> assertNotNull(returnedCart),
 				() -> assertEquals(mockUser.getId(), returnedCart.getUser().getId()),
-				() -> assertEquals(mockItem.getId(), returnedCart.getItems().getFirst().getId()));
+				() -> assertEquals(mockItem.getId(), returnedCart.getLines().getFirst().getItem().getId()));
+	}
+
+	@Test
+	@DisplayName("Add to cart with an id-carrying token loads the cart by id")
+	public void addToCart_withTokenCarryingIds_skipsUsernameLookup() throws Exception {
+		Cart cart = new Cart();
+		cart.setId(7L);
+		cart.setUser(mockUser);
+		when(cartRepository.findById(7L)).thenReturn(Optional.of(cart));
+		when(cartRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+		String header = JWTUtils.TOKEN_PREFIX + JWTUtils.generateToken("user", mockUser.getId(), 7L);
+
+		MvcResult result = mockMvc.perform(post("/api/cart/addToCart")
+						.header(JWTUtils.HEADER_STRING, header)
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(json.writeValueAsString(createCartRequest(mockUser, mockItem, 2))))
+				.andExpect(status().isOk())
+				.andReturn();
+
+		Cart returnedCart = json.readValue(result.getResponse().getContentAsString(), Cart.class);
+
+		assertAll(
+				() -> assertEquals(7L, returnedCart.getId()),
+				() -> assertEquals(1, returnedCart.getLines().size()),
+				() -> assertEquals(2, returnedCart.getLines().getFirst().getQuantity()),
+				() -> verify(userRepository, never()).findByUsername(anyString()));
+	}
+
+	@Test
+	@DisplayName("Order history with an id-carrying token queries by user id")
+	public void getOrderForUser_withTokenCarryingIds_skipsUsernameLookup() throws Exception {
+		String header = JWTUtils.TOKEN_PREFIX + JWTUtils.generateToken("user", mockUser.getId(), 7L);
+		when(orderRepository.findByUserId(mockUser.getId())).thenReturn(List.of());
+
+		mockMvc.perform(get("/api/order/history/user")
+						.header(JWTUtils.HEADER_STRING, header)
+						.contentType(MediaType.APPLICATION_JSON))
+				.andExpect(status().isOk());
+
+		verify(orderRepository).findByUserId(mockUser.getId());
+		verify(userRepository, never()).findByUsername(anyString());
 	}
 
 	@Test
@@ -257,6 +415,147 @@ public class SareetaApplicationTests {
 				() -> assertEquals(mockItem.getId(), returnedItem.getId()));
 	}
 
+	@Test
+	@WithMockUser
+	@DisplayName("Item search ranks name matches first, completes prefixes and tolerates typos")
+	public void searchItems_prefixAndTypoQueries_returnsRankedItems() throws Exception {
+		searchIndex.rebuild(() -> List.of(
+				mockItem,
+				createItem(2L, "Square widget", "Widget that is square"),
+				createItem(3L, "Gadget", "Gadget for round holes")));
+
+		assertAll(
+				() -> assertEquals(List.of(1L, 3L), searchItemIds("round")),
+				() -> assertEquals(List.of(2L), searchItemIds("wid squ")),
+				() -> assertEquals(List.of(2L), searchItemIds("sqaure widgte")),
+				() -> assertEquals(List.of(), searchItemIds("round square")));
+	}
+
+	@Test
+	@DisplayName("Item changes made while the search index is being rebuilt are kept in the rebuilt index")
+	public void searchIndexRebuild_changesDuringRead_areKept() {
+		ItemSearchIndex index = new ItemSearchIndex();
+		index.put(createItem(3L, "Gadget", "Gadget for round holes"));
+
+		index.rebuild(() -> {
+			// Committed while the rebuild reads, so what it read has neither change
+			index.put(createItem(2L, "Square widget", "Widget that is square"));
+			index.remove(3L);
+			return List.of(mockItem, createItem(3L, "Gadget", "Gadget for round holes"));
+		});
+
+		assertAll(
+				() -> assertEquals(2, index.size()),
+				() -> assertEquals(List.of(2L), index.search("square", 10).stream().map(Item::getId).toList()),
+				() -> assertEquals(List.of(), index.search("gadget", 10)));
+	}
+
+	@Test
+	@WithMockUser
+	@DisplayName("Item search rejects a limit outside 1 to 100")
+	public void searchItems_limitOutOfRange_returnsBadRequest() throws Exception {
+		mockMvc.perform(get("/api/item/search").param("q", "widget").param("limit", "0"))
+				.andExpect(status().isBadRequest());
+	}
+
+	private List<Long> searchItemIds(String query) throws Exception {
+		String response = mockMvc.perform(get("/api/item/search").param("q", query))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		return json.readValue(response, new TypeReference<List<Item>>() {}).stream().map(Item::getId).toList();
+	}
+
+	@Test
+	@DisplayName("Adding many units of one item keeps a single cart line")
+	public void addItem_largeQuantity_updatesSingleLine() {
+		Cart cart = new Cart();
+		cart.addItem(mockItem, 10_000);
+		cart.addItem(mockItem, 5);
+		cart.removeItem(mockItem, 3);
+
+		assertAll(
+				() -> assertEquals(1, cart.getLines().size()),
+				() -> assertEquals(10_002, cart.getQuantity(mockItem)),
+				() -> assertEquals(Money.of("29905.98"), cart.getTotal()));
+	}
+
+	@Test
+	@DisplayName("Adding an item that would overflow the quantity or the total leaves the cart unchanged")
+	public void addItem_overflowingQuantityOrTotal_leavesCartUnchanged() {
+		Cart cart = new Cart();
+		cart.addItem(mockItem, Integer.MAX_VALUE - 1);
+		Item priceless = new Item();
+		priceless.setId(2L);
+		priceless.setPrice(Money.ofMinor(Long.MAX_VALUE));
+
+		assertThrows(ArithmeticException.class, () -> cart.addItem(mockItem, 2));
+		assertThrows(ArithmeticException.class, () -> cart.addItem(priceless, 2));
+
+		assertAll(
+				() -> assertEquals(1, cart.getLines().size()),
+				() -> assertEquals(Integer.MAX_VALUE - 1, cart.getQuantity(mockItem)),
+				() -> assertEquals(0, cart.getQuantity(priceless)),
+				() -> assertEquals(Money.ofMinor(299L * (Integer.MAX_VALUE - 1)), cart.getTotal()));
+	}
+
+	@Test
+	@DisplayName("Money amounts serialize as plain decimal numbers")
+	public void money_serializesAsDecimalNumber() throws Exception {
+		String itemJson = json.writeValueAsString(mockItem);
+		Item roundTripped = json.readValue(itemJson, Item.class);
+
+		assertAll(
+				() -> assertTrue(itemJson.contains("\"price\":2.99")),
+				() -> assertEquals(299, roundTripped.getPrice().minorUnits()),
+				() -> assertEquals("-0.05", Money.ofMinor(-5).toString()));
+	}
+
+	@Test
+	@WithMockUser
+	@DisplayName("Add to cart rejects a non-positive quantity")
+	public void addToCart_zeroQuantity_returnsBadRequest() throws Exception {
+		mockMvc.perform(post("/api/cart/addToCart")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(json.writeValueAsString(createCartRequest(mockUser, mockItem, 0))))
+				.andExpect(status().isBadRequest());
+	}
+
+	@Test
+	@WithMockUser(username = "user")
+	@DisplayName("Batch cart modification resolves items once and reports each operation")
+	public void modifyCart_batchOfOperations_reportsEachResult() throws Exception {
+		when(itemRepository.findAllById(any())).thenReturn(List.of(mockItem));
+		when(cartRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+		BatchModifyCartRequest request = new BatchModifyCartRequest();
+		request.setUsername("user");
+		request.setOperations(List.of(
+				createCartOperation(CartOperation.Action.ADD, mockItem.getId(), 3),
+				createCartOperation(CartOperation.Action.ADD, 99L, 1),
+				createCartOperation(CartOperation.Action.REMOVE, mockItem.getId(), 1),
+				createCartOperation(CartOperation.Action.ADD, mockItem.getId(), 0)));
+
+		MvcResult result = mockMvc.perform(post("/api/cart/batch")
+						.contentType(MediaType.APPLICATION_JSON)
+						.content(json.writeValueAsString(request)))
+				.andExpect(status().isOk())
+				.andReturn();
+
+		BatchModifyCartResponse response = json.readValue(result.getResponse().getContentAsString(),
+				BatchModifyCartResponse.class);
+
+		assertAll(
+				() -> assertEquals(List.of(CartOperationResult.Status.APPLIED,
+								CartOperationResult.Status.ITEM_NOT_FOUND,
+								CartOperationResult.Status.APPLIED,
+								CartOperationResult.Status.INVALID_OPERATION),
+						response.getResults().stream().map(CartOperationResult::getStatus).toList()),
+				() -> assertEquals(2, response.getCart().getLines().getFirst().getQuantity()),
+				() -> verify(itemRepository, times(1)).findAllById(any()),
+				() -> verify(itemRepository, never()).findById(anyLong()),
+				() -> verify(cartRepository, times(1)).save(any()));
+	}
+
 	@Test
 	@DisplayName("Unauthenticated user cannot add item to cart")
 	public void addToCart_unauthenticatedUserAddItemToCart_isForbidden() throws Exception {
@@ -295,7 +594,7 @@ public class SareetaApplicationTests {
 		ModifyCartRequest request = createCartRequest(mockUser, mockItem, 1);
 		Cart emptyCart = new Cart();
 		emptyCart.setUser(mockUser);
-		emptyCart.setItems(new ArrayList<>());
+		emptyCart.setLines(new ArrayList<>());
 
 		when(cartRepository.save(any())).thenReturn(emptyCart);
 
@@ -311,7 +610,7 @@ public class SareetaApplicationTests {
 		assertAll(
 				() -> assertNotNull(returnedCart),
 				() -> assertEquals(mockUser.getId(), returnedCart.getUser().getId()),
-				() -> assertTrue(returnedCart.getItems().isEmpty()));
+				() -> assertTrue(returnedCart.getLines().isEmpty()));
 	}
 
 	@Test
@@ -357,7 +656,7 @@ public class SareetaApplicationTests {
 
 		assertAll(
 				() -> assertNotNull(order),
-				() -> assertFalse(order.getItems().isEmpty()),
+				() -> assertFalse(order.getLines().isEmpty()),
 				() -> assertEquals(mockUser.getId(), order.getUser().getId())
 		);
 	}
@@ -399,7 +698,7 @@ public class SareetaApplicationTests {
 				() -> assertNotNull(userOrders),
 				() -> assertFalse(userOrders.isEmpty()),
 				() -> assertEquals(mockUser.getId(), userOrders.getFirst().getUser().getId()),
-				() -> assertEquals(mockItem.getId(), userOrders.getFirst().getItems().getFirst().getId()));
+				() -> assertEquals(mockItem.getId(), userOrders.getFirst().getLines().getFirst().getItem().getId()));
 	}
 
 	@Test
@@ -431,12 +730,16 @@ public class SareetaApplicationTests {
 	}
 
 	private Item createItem() {
+		return createItem(1L, "Round widget", "Widget that is round");
+	}
+
+	private Item createItem(long id, String name, String description) {
 		Item item = new Item();
 
-		item.setId(1L);
-		item.setName("Round widget");
-		item.setPrice(new BigDecimal("2.99"));
-		item.setDescription("Widget that is round");
+		item.setId(id);
+		item.setName(name);
+		item.setPrice(Money.of("2.99"));
+		item.setDescription(description);
 
 		return item;
 	}
@@ -450,12 +753,21 @@ public class SareetaApplicationTests {
 		return request;
 	}
 
+	private CartOperation createCartOperation(CartOperation.Action action, long itemId, int quantity) {
+		CartOperation operation = new CartOperation();
+		operation.setAction(action);
+		operation.setItemId(itemId);
+		operation.setQuantity(quantity);
+
+		return operation;
+	}
+
 	private Cart createCart() {
 		Cart cart = new Cart();
 
 		cart.setId(1L);
 		cart.setUser(mockUser);
-		cart.setItems(List.of(mockItem));
+		cart.addItem(mockItem);
 
 		return cart;
 	}
@@ -0,0 +1,84 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.money.Money;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.UserOrder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single add and remove operations against carts that already hold many distinct items, and
+ * turning such a cart into an order.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    public int distinctItems;
+
+    private Item[] items;
+    private Cart cart;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void createItems() {
+        items = new Item[distinctItems];
+        for (int i = 0; i < distinctItems; i++) {
+            Item item = new Item();
+            item.setId((long) i);
+            item.setName("Item " + i);
+            item.setPrice(Money.ofMinor(100 + i));
+            item.setDescription("Benchmark item");
+            items[i] = item;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void fillCart() {
+        cart = new Cart();
+        for (Item item : items) {
+            cart.addItem(item, 2);
+        }
+    }
+
+    @Benchmark
+    public Money addThenRemove() {
+        Item item = items[next++ % distinctItems];
+        cart.addItem(item);
+        cart.removeItem(item);
+        return cart.getTotal();
+    }
+
+    @Benchmark
+    public UserOrder createFromCart() {
+        return UserOrder.createFromCart(cart);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CartBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.money.Money;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.search.ItemSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query latency of {@link ItemSearchIndex} over a synthetic catalog of a million items built from
+ * a few thousand brand, adjective and product words.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class ItemSearchBenchmark {
+
+    private static final String[] PRODUCTS = {"widget", "gadget", "lantern", "kettle", "blanket", "umbrella",
+            "backpack", "notebook", "headphones", "bicycle", "toaster", "keyboard", "sandals", "teapot", "candle"};
+    private static final String[] ADJECTIVES = {"round", "square", "compact", "deluxe", "vintage", "wireless",
+            "folding", "insulated", "waterproof", "ergonomic", "rustic", "portable", "classic", "modern"};
+
+    @Param({"1000000"})
+    public int items;
+
+    @Param({"lantern", "vint", "waterprof", "rustic kettle", "brand417 umbr"})
+    public String query;
+
+    private ItemSearchIndex index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        List<Item> catalog = new ArrayList<>(items);
+        for (int i = 0; i < items; i++) {
+            String brand = "brand" + random.nextInt(5_000);
+            String adjective = ADJECTIVES[random.nextInt(ADJECTIVES.length)];
+            String product = PRODUCTS[random.nextInt(PRODUCTS.length)];
+            Item item = new Item();
+            item.setId((long) i);
+            item.setName(brand + " " + adjective + " " + product);
+            item.setDescription("A " + ADJECTIVES[random.nextInt(ADJECTIVES.length)] + " " + product
+                    + " model " + random.nextInt(100_000));
+            item.setPrice(Money.ofMinor(100 + random.nextInt(100_000)));
+            catalog.add(item);
+        }
+        index = new ItemSearchIndex();
+        index.rebuild(() -> catalog);
+    }
+
+    @Benchmark
+    public List<Item> search() {
+        return index.search(query, 20);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ItemSearchBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
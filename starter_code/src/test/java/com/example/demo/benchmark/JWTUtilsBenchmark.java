@@ -0,0 +1,54 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.security.JWTUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of signing a token at login and of verifying one on an uncached request.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JWTUtilsBenchmark {
+
+    private String token;
+
+    @Setup
+    public void setup() {
+        token = JWTUtils.TOKEN_PREFIX + JWTUtils.generateToken("user", 1L, 1L);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return JWTUtils.generateToken("user", 1L, 1L);
+    }
+
+    @Benchmark
+    public String getUsernameFromToken() {
+        return JWTUtils.getUsernameFromToken(token);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JWTUtilsBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.persistence.RevokedToken;
+import com.example.demo.model.persistence.repositories.RevokedTokenRepository;
+import com.example.demo.security.JWTUtils;
+import com.example.demo.security.JWTVerificationFilter;
+import com.example.demo.security.TokenRevocationList;
+import com.example.demo.security.VerifiedTokenCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Throughput of {@link JWTVerificationFilter} for a client that keeps presenting the same token,
+ * with the verified-token cache switched on and off, and with no or many other tokens revoked.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JWTVerificationFilterBenchmark {
+
+    private static final FilterChain NO_OP_CHAIN = (request, response) -> { };
+
+    @Param({"true", "false"})
+    public boolean cacheEnabled;
+
+    @Param({"0", "100000"})
+    public int revokedTokens;
+
+    private TokenRevocationList revocations;
+    private JWTVerificationFilter filter;
+    private MockHttpServletRequest request;
+    private MockHttpServletResponse response;
+
+    @Setup
+    public void setup() {
+        List<RevokedToken> revoked = new ArrayList<>(revokedTokens);
+        Instant expiresAt = Instant.now().plus(Duration.ofDays(1));
+        for (int i = 0; i < revokedTokens; i++) {
+            revoked.add(new RevokedToken(UUID.randomUUID().toString(), expiresAt, Instant.now()));
+        }
+        RevokedTokenRepository repository = mock(RevokedTokenRepository.class);
+        when(repository.findRevokedSince(any(), any())).thenReturn(revoked);
+        revocations = new TokenRevocationList(repository, mock(PlatformTransactionManager.class),
+                new SimpleMeterRegistry(), Duration.ofHours(1), 100_000, 0.01);
+        revocations.start();
+
+        filter = new JWTVerificationFilter(authentication -> authentication,
+                new VerifiedTokenCache(cacheEnabled, 10_000), revocations, new SimpleMeterRegistry());
+        request = new MockHttpServletRequest("GET", "/api/item");
+        request.addHeader(JWTUtils.HEADER_STRING, JWTUtils.TOKEN_PREFIX + JWTUtils.generateToken("user"));
+        response = new MockHttpServletResponse();
+    }
+
+    @TearDown
+    public void tearDown() {
+        revocations.stop();
+    }
+
+    @Benchmark
+    public Object filterRequest() throws Exception {
+        filter.doFilter(request, response, NO_OP_CHAIN);
+        Object authentication = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return authentication;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JWTVerificationFilterBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.money.Money;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import com.example.demo.model.persistence.User;
+import com.example.demo.model.persistence.UserOrder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of the cart and order response bodies.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    @Param({"1", "100"})
+    public int distinctItems;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private Cart cart;
+    private UserOrder order;
+
+    @Setup
+    public void setup() {
+        User user = new User();
+        user.setId(1L);
+        user.setUsername("user");
+        cart = new Cart();
+        cart.setId(1L);
+        cart.setUser(user);
+        for (int i = 0; i < distinctItems; i++) {
+            Item item = new Item();
+            item.setId((long) i);
+            item.setName("Item " + i);
+            item.setPrice(Money.ofMinor(100 + i));
+            item.setDescription("Benchmark item");
+            cart.addItem(item, 1 + i % 5);
+        }
+        order = UserOrder.createFromCart(cart);
+        order.setId(1L);
+    }
+
+    @Benchmark
+    public String serializeCart() throws JsonProcessingException {
+        return mapper.writeValueAsString(cart);
+    }
+
+    @Benchmark
+    public String serializeOrder() throws JsonProcessingException {
+        return mapper.writeValueAsString(order);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JsonSerializationBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
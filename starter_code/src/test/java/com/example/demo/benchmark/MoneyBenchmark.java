@@ -0,0 +1,100 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.money.Money;
+import com.example.demo.model.persistence.Cart;
+import com.example.demo.model.persistence.Item;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart totalling on large carts: the previous BigDecimal accumulation against the minor-unit
+ * {@code long} arithmetic used by {@link Money} and {@link Cart}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoneyBenchmark {
+
+    @Param({"100", "10000"})
+    public int lines;
+
+    private BigDecimal[] decimalPrices;
+    private Money[] moneyPrices;
+    private Item[] items;
+    private int[] quantities;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        decimalPrices = new BigDecimal[lines];
+        moneyPrices = new Money[lines];
+        items = new Item[lines];
+        quantities = new int[lines];
+        for (int i = 0; i < lines; i++) {
+            long cents = 1 + random.nextInt(100_000);
+            decimalPrices[i] = BigDecimal.valueOf(cents, 2);
+            moneyPrices[i] = Money.ofMinor(cents);
+            quantities[i] = 1 + random.nextInt(20);
+
+            Item item = new Item();
+            item.setId((long) i);
+            item.setName("Item " + i);
+            item.setPrice(moneyPrices[i]);
+            item.setDescription("Benchmark item");
+            items[i] = item;
+        }
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalTotal() {
+        BigDecimal total = new BigDecimal(0);
+        for (int i = 0; i < lines; i++) {
+            total = total.add(decimalPrices[i].multiply(BigDecimal.valueOf(quantities[i])));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long minorUnitTotal() {
+        long total = 0;
+        for (int i = 0; i < lines; i++) {
+            total = Math.addExact(total, Math.multiplyExact(moneyPrices[i].minorUnits(), quantities[i]));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public Money cartAddItems() {
+        Cart cart = new Cart();
+        for (int i = 0; i < lines; i++) {
+            cart.addItem(items[i], quantities[i]);
+        }
+        return cart.getTotal();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MoneyBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.security.JWTUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares many writers adding to one cart with one writer making the same number of adds to a
+ * cart of its own, over HTTP against the application on a random port. Adds to an existing line
+ * are applied as SQL increments, so writers of one cart should not queue behind each other's
+ * retries and the contended run should keep up with the single writer.
+ *
+ * <p>Only runs when asked for, for example
+ * {@code mvn test -Dtest=CartContentionLoadTest -Dloadtest=true -Dloadtest.writers=64 -Dloadtest.max-slowdown=2}.
+ * Correctness under contention is covered by the regular integration tests; this one only times it.
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:cart-contention;NON_KEYWORDS=user",
+		"logging.level.root=warn"
+})
+public class CartContentionLoadTest {
+
+	private static final int WRITERS = Integer.getInteger("loadtest.writers", 64);
+	private static final int ADDS_PER_WRITER = Integer.getInteger("loadtest.adds-per-writer", 10);
+	private static final double MAX_SLOWDOWN = Double.parseDouble(System.getProperty("loadtest.max-slowdown", "2"));
+
+	private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+	private static final String PASSWORD = "load-test-password";
+	// Seeded by data.sql
+	private static final long ITEM_ID = 1;
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private ObjectMapper json;
+
+	private final HttpClient client = HttpClient.newBuilder()
+			.connectTimeout(REQUEST_TIMEOUT)
+			.build();
+
+	@Test
+	@DisplayName("Writers contending for one cart keep up with one writer adding alone")
+	public void addToCart_concurrentWritersOnOneCart_keepsUpWithOneWriterAlone() throws Exception {
+		int adds = WRITERS * ADDS_PER_WRITER;
+
+		String alone = "load-" + UUID.randomUUID();
+		String aloneAuthorization = createUserAndLogin(alone);
+		// The first round warms up the request path and is not reported
+		addAlone(alone, aloneAuthorization, adds);
+		long aloneNanos = addAlone(alone, aloneAuthorization, adds);
+
+		String shared = "load-" + UUID.randomUUID();
+		String sharedAuthorization = createUserAndLogin(shared);
+		ExecutorService writers = Executors.newFixedThreadPool(WRITERS);
+		CountDownLatch go = new CountDownLatch(1);
+		List<Future<Integer>> failures = new ArrayList<>();
+		for (int w = 0; w < WRITERS; w++) {
+			failures.add(writers.submit(() -> {
+				go.await();
+				int failed = 0;
+				for (int i = 0; i < ADDS_PER_WRITER; i++) {
+					if (addToCart(shared, sharedAuthorization).statusCode() != 200) {
+						failed++;
+					}
+				}
+				return failed;
+			}));
+		}
+		long started = System.nanoTime();
+		go.countDown();
+		int failedAdds = 0;
+		for (Future<Integer> writer : failures) {
+			failedAdds += writer.get(5, TimeUnit.MINUTES);
+		}
+		int failed = failedAdds;
+		long contendedNanos = System.nanoTime() - started;
+		writers.shutdown();
+
+		// One more add reports the line as it ends up
+		JsonNode cart = json.readTree(addToCart(shared, sharedAuthorization).body());
+		System.out.printf("%n%d adds: %d writers on one cart %d ms, one writer alone %d ms%n", adds, WRITERS,
+				TimeUnit.NANOSECONDS.toMillis(contendedNanos), TimeUnit.NANOSECONDS.toMillis(aloneNanos));
+
+		long aloneMillis = TimeUnit.NANOSECONDS.toMillis(aloneNanos);
+		long contendedMillis = TimeUnit.NANOSECONDS.toMillis(contendedNanos);
+		assertAll(
+				() -> assertEquals(0, failed, "adds that failed"),
+				() -> assertEquals(adds + 1, cart.get("lines").get(0).get("quantity").asInt()),
+				() -> assertTrue(contendedNanos < aloneNanos * MAX_SLOWDOWN,
+						String.format("contended %d ms, alone %d ms", contendedMillis, aloneMillis)));
+	}
+
+	private long addAlone(String username, String authorization, int adds) throws IOException, InterruptedException {
+		long started = System.nanoTime();
+		for (int i = 0; i < adds; i++) {
+			assertEquals(200, addToCart(username, authorization).statusCode());
+		}
+		return System.nanoTime() - started;
+	}
+
+	private HttpResponse<String> addToCart(String username, String authorization)
+			throws IOException, InterruptedException {
+		return client.send(post("/api/cart/addToCart", Map.of("username", username, "itemId", ITEM_ID,
+				"quantity", 1), authorization), HttpResponse.BodyHandlers.ofString());
+	}
+
+	private String createUserAndLogin(String username) throws IOException, InterruptedException {
+		HttpResponse<String> created = client.send(post("/api/user/create", Map.of(
+				"username", username, "password", PASSWORD, "confirmPassword", PASSWORD), null),
+				HttpResponse.BodyHandlers.ofString());
+		assertEquals(200, created.statusCode());
+		HttpResponse<String> login = client.send(post(JWTUtils.LOGIN_URL, Map.of(
+				"username", username, "password", PASSWORD), null), HttpResponse.BodyHandlers.ofString());
+		assertEquals(200, login.statusCode());
+		return login.headers().firstValue(JWTUtils.HEADER_STRING).orElseThrow();
+	}
+
+	private HttpRequest post(String path, Map<String, ?> body, String authorization) throws IOException {
+		HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+				.header("Content-Type", "application/json")
+				.timeout(REQUEST_TIMEOUT)
+				.POST(HttpRequest.BodyPublishers.ofString(json.writeValueAsString(body)));
+		if (authorization != null) {
+			request.header(JWTUtils.HEADER_STRING, authorization);
+		}
+		return request.build();
+	}
+}
@@ -0,0 +1,261 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.security.JWTUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives the shopping flow over HTTP against the application on a random port and reports
+ * throughput and latency percentiles per endpoint. Each virtual user creates an account, logs in
+ * once and then loops over browsing, adding to the cart, submitting and reading its history.
+ *
+ * <p>Only runs when asked for, for example
+ * {@code mvn test -Dtest=ShoppingFlowLoadTest -Dloadtest=true -Dloadtest.users=64 -Dloadtest.duration=60}.
+ * The report is printed and written to {@code target/loadtest-report.json}.
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"spring.datasource.url=jdbc:h2:mem:loadtest;NON_KEYWORDS=user",
+		"logging.level.root=warn"
+})
+public class ShoppingFlowLoadTest {
+
+	private static final int USERS = Integer.getInteger("loadtest.users", 32);
+	private static final int WARMUP_SECONDS = Integer.getInteger("loadtest.warmup", 10);
+	private static final int DURATION_SECONDS = Integer.getInteger("loadtest.duration", 30);
+	private static final int THINK_TIME_MILLIS = Integer.getInteger("loadtest.think-time-ms", 0);
+
+	private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+	private static final String PASSWORD = "load-test-password";
+
+	@LocalServerPort
+	private int port;
+
+	@Autowired
+	private ObjectMapper json;
+
+	private final HttpClient client = HttpClient.newBuilder()
+			.connectTimeout(REQUEST_TIMEOUT)
+			.build();
+
+	private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+	private volatile boolean running = true;
+
+	@Test
+	@DisplayName("Shopping flow under concurrent virtual users")
+	public void shoppingFlow_concurrentUsers_reportsLatencyPerEndpoint() throws Exception {
+		// Accounts are created and logged in once per user while warming up, so those two endpoints
+		// are reported over the whole run
+		stats.put("create", new EndpointStats(true));
+		stats.put("login", new EndpointStats(true));
+		for (String endpoint : List.of("items", "addToCart", "submit", "history")) {
+			stats.put(endpoint, new EndpointStats(false));
+		}
+
+		ExecutorService users = Executors.newVirtualThreadPerTaskExecutor();
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < USERS; i++) {
+			futures.add(users.submit(() -> {
+				runVirtualUser();
+				return null;
+			}));
+		}
+
+		TimeUnit.SECONDS.sleep(WARMUP_SECONDS);
+		stats.values().forEach(EndpointStats::startMeasuring);
+		long start = System.nanoTime();
+		TimeUnit.SECONDS.sleep(DURATION_SECONDS);
+		double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+		Map<String, Histogram> histograms = new LinkedHashMap<>();
+		stats.forEach((endpoint, endpointStats) -> histograms.put(endpoint, endpointStats.stopMeasuring()));
+
+		running = false;
+		users.shutdown();
+		assertTrue(users.awaitTermination(1, TimeUnit.MINUTES), "virtual users did not stop");
+		for (Future<?> future : futures) {
+			future.get();
+		}
+
+		List<Map<String, Object>> report = report(histograms, elapsedSeconds);
+		Files.createDirectories(Path.of("target"));
+		json.writerWithDefaultPrettyPrinter().writeValue(Path.of("target", "loadtest-report.json").toFile(), report);
+
+		assertAll(stats.entrySet().stream().map(entry -> () ->
+				assertEquals(0, entry.getValue().errors.sum(), entry.getKey() + " returned errors")));
+		assertTrue(histograms.get("submit").getTotalCount() > 0, "no orders were submitted while measuring");
+	}
+
+	private void runVirtualUser() throws Exception {
+		String username = "load-" + UUID.randomUUID();
+		if (!send("create", post("/api/user/create", Map.of(
+				"username", username, "password", PASSWORD, "confirmPassword", PASSWORD), null))) {
+			return;
+		}
+		HttpResponse<String> login = exchange("login", post("/login", Map.of(
+				"username", username, "password", PASSWORD), null));
+		if (login == null) {
+			return;
+		}
+		String authorization = login.headers().firstValue(JWTUtils.HEADER_STRING).orElseThrow();
+
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		while (running) {
+			HttpResponse<String> items = exchange("items", get("/api/item", authorization));
+			if (items == null) {
+				continue;
+			}
+			JsonNode catalog = json.readTree(items.body());
+			int adds = 1 + random.nextInt(3);
+			for (int i = 0; i < adds && running; i++) {
+				long itemId = catalog.get(random.nextInt(catalog.size())).get("id").asLong();
+				send("addToCart", post("/api/cart/addToCart", Map.of(
+						"username", username, "itemId", itemId, "quantity", 1 + random.nextInt(3)), authorization));
+				think();
+			}
+			send("submit", post("/api/order/submit/" + username, null, authorization));
+			send("history", get("/api/order/history/" + username + "/summary?limit=20", authorization));
+			think();
+		}
+	}
+
+	private boolean send(String endpoint, HttpRequest request) throws InterruptedException {
+		return exchange(endpoint, request) != null;
+	}
+
+	private HttpResponse<String> exchange(String endpoint, HttpRequest request) throws InterruptedException {
+		EndpointStats endpointStats = stats.get(endpoint);
+		long start = System.nanoTime();
+		try {
+			HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+			endpointStats.record(System.nanoTime() - start, response.statusCode() / 100 == 2);
+			return response.statusCode() / 100 == 2 ? response : null;
+		} catch (IOException e) {
+			endpointStats.record(System.nanoTime() - start, false);
+			return null;
+		}
+	}
+
+	private void think() throws InterruptedException {
+		if (THINK_TIME_MILLIS > 0) {
+			Thread.sleep(ThreadLocalRandom.current().nextInt(THINK_TIME_MILLIS * 2 + 1));
+		}
+	}
+
+	private HttpRequest get(String path, String authorization) {
+		return request(path, authorization).GET().build();
+	}
+
+	private HttpRequest post(String path, Map<String, ?> body, String authorization) {
+		try {
+			HttpRequest.BodyPublisher publisher = body == null
+					? HttpRequest.BodyPublishers.noBody()
+					: HttpRequest.BodyPublishers.ofString(json.writeValueAsString(body));
+			return request(path, authorization)
+					.header("Content-Type", "application/json")
+					.POST(publisher)
+					.build();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private HttpRequest.Builder request(String path, String authorization) {
+		HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+				.timeout(REQUEST_TIMEOUT);
+		if (authorization != null) {
+			builder.header(JWTUtils.HEADER_STRING, authorization);
+		}
+		return builder;
+	}
+
+	private List<Map<String, Object>> report(Map<String, Histogram> histograms, double elapsedSeconds) {
+		List<Map<String, Object>> rows = new ArrayList<>();
+		System.out.printf("%nShopping flow, %d users, %.1f s measured%n", USERS, elapsedSeconds);
+		System.out.printf("%-10s %10s %10s %10s %10s %10s %10s %8s%n",
+				"endpoint", "requests", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors");
+		histograms.forEach((endpoint, histogram) -> {
+			Map<String, Object> row = new LinkedHashMap<>();
+			row.put("endpoint", endpoint);
+			row.put("requests", histogram.getTotalCount());
+			row.put("throughput", histogram.getTotalCount() / elapsedSeconds);
+			row.put("p50Millis", millis(histogram.getValueAtPercentile(50)));
+			row.put("p99Millis", millis(histogram.getValueAtPercentile(99)));
+			row.put("p999Millis", millis(histogram.getValueAtPercentile(99.9)));
+			row.put("maxMillis", millis(histogram.getMaxValue()));
+			row.put("errors", stats.get(endpoint).errors.sum());
+			rows.add(row);
+			System.out.printf("%-10s %10d %10.1f %10.2f %10.2f %10.2f %10.2f %8d%n", endpoint,
+					row.get("requests"), row.get("throughput"), row.get("p50Millis"), row.get("p99Millis"),
+					row.get("p999Millis"), row.get("maxMillis"), row.get("errors"));
+		});
+		return rows;
+	}
+
+	private static double millis(long micros) {
+		return micros / 1000.0;
+	}
+
+	/**
+	 * Latencies in microseconds for one endpoint, split into the warm-up and the measured window.
+	 */
+	private static class EndpointStats {
+
+		private final boolean includeWarmup;
+		private final Recorder recorder = new Recorder(TimeUnit.MINUTES.toMicros(1), 3);
+		private final Histogram warmup = new Histogram(TimeUnit.MINUTES.toMicros(1), 3);
+		private final LongAdder errors = new LongAdder();
+
+		EndpointStats(boolean includeWarmup) {
+			this.includeWarmup = includeWarmup;
+		}
+
+		void record(long nanos, boolean success) {
+			recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), TimeUnit.MINUTES.toMicros(1)));
+			if (!success) {
+				errors.increment();
+			}
+		}
+
+		void startMeasuring() {
+			warmup.add(recorder.getIntervalHistogram());
+		}
+
+		Histogram stopMeasuring() {
+			Histogram measured = recorder.getIntervalHistogram();
+			if (includeWarmup) {
+				measured.add(warmup);
+			}
+			return measured;
+		}
+	}
+}
@@ -0,0 +1,138 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.security.JWTUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Starts the packaged application as a fresh process, the way a new instance starts during a
+ * spike, and times how long it takes from launching the JVM to the first answered catalog request.
+ * Compares the default mode, {@code java -jar} on the war, with the {@code fast-startup} build:
+ * the extracted war with the AOT-processed context, the class-data sharing archive and lazy
+ * initialization. Each mode is started several times, alternating, and the median is reported.
+ *
+ * <p>Needs the artifacts of {@code mvn -Pfast-startup package}, and only runs when asked for, for
+ * example {@code mvn test -Dtest=StartupTimeComparisonLoadTest -Dloadtest=true -Dloadtest.startup.runs=5}.
+ * Run it on an otherwise idle machine. The report is printed and written to
+ * {@code target/startup-time-report.json}; each start's log, with its startup breakdown, goes to
+ * {@code target/startup-logs}.
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+public class StartupTimeComparisonLoadTest {
+
+	private static final int RUNS = Integer.getInteger("loadtest.startup.runs", 5);
+	private static final Duration START_TIMEOUT = Duration.ofMinutes(2);
+	private static final Path TARGET = Path.of("target");
+	private static final Path FAST_STARTUP = TARGET.resolve("fast-startup");
+	private static final String WAR = "auth-course-0.0.1-SNAPSHOT.war";
+
+	private final ObjectMapper json = new ObjectMapper();
+
+	@Test
+	@DisplayName("Time to first request of a fresh process, default against fast-startup")
+	public void startupModes_freshProcess_reportsTimeToFirstRequest() throws Exception {
+		assertTrue(Files.exists(TARGET.resolve(WAR)) && Files.exists(FAST_STARTUP.resolve("application.jsa")),
+				"Build the artifacts first with mvn -Pfast-startup package");
+		Files.createDirectories(TARGET.resolve("startup-logs"));
+
+		Map<String, List<Long>> millis = new LinkedHashMap<>();
+		millis.put("default", new ArrayList<>());
+		millis.put("fast-startup", new ArrayList<>());
+		for (int run = 1; run <= RUNS; run++) {
+			for (Map.Entry<String, List<Long>> mode : millis.entrySet()) {
+				mode.getValue().add(timeToFirstRequest(mode.getKey(), run));
+			}
+		}
+
+		List<Map<String, Object>> report = new ArrayList<>();
+		System.out.printf("%n%-13s %10s %10s %10s%n", "mode", "median ms", "min ms", "max ms");
+		millis.forEach((mode, times) -> {
+			List<Long> sorted = times.stream().sorted().toList();
+			Map<String, Object> row = new LinkedHashMap<>();
+			row.put("mode", mode);
+			row.put("runs", sorted.size());
+			row.put("medianMillis", sorted.get(sorted.size() / 2));
+			row.put("minMillis", sorted.getFirst());
+			row.put("maxMillis", sorted.getLast());
+			row.put("millis", times);
+			report.add(row);
+			System.out.printf("%-13s %10d %10d %10d%n", mode, row.get("medianMillis"), row.get("minMillis"),
+					row.get("maxMillis"));
+		});
+		json.writerWithDefaultPrettyPrinter().writeValue(TARGET.resolve("startup-time-report.json").toFile(), report);
+	}
+
+	private long timeToFirstRequest(String mode, int run) throws Exception {
+		int port = freePort();
+		Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+		List<String> command = new ArrayList<>(List.of(java.toString()));
+		Path workingDirectory;
+		if (mode.equals("default")) {
+			workingDirectory = TARGET;
+		} else {
+			// The archive is only used with the class path it was recorded with, so start from the
+			// same directory with the same relative jar path as the training run in pom.xml
+			workingDirectory = FAST_STARTUP;
+			command.addAll(List.of("-XX:SharedArchiveFile=application.jsa", "-Dspring.aot.enabled=true",
+					"-Dspring.profiles.active=fast-startup"));
+		}
+		command.addAll(List.of("-jar", WAR, "--server.port=" + port));
+
+		HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/item"))
+				.header(JWTUtils.HEADER_STRING, JWTUtils.TOKEN_PREFIX + JWTUtils.generateToken("startup"))
+				.timeout(Duration.ofSeconds(10))
+				.GET()
+				.build();
+		long start = System.nanoTime();
+		Process process = new ProcessBuilder(command)
+				.directory(workingDirectory.toFile())
+				.redirectErrorStream(true)
+				.redirectOutput(TARGET.resolve("startup-logs").resolve(mode + "-" + run + ".log").toFile())
+				.start();
+		try (HttpClient client = HttpClient.newHttpClient()) {
+			while (System.nanoTime() - start < START_TIMEOUT.toNanos()) {
+				assertTrue(process.isAlive(), mode + " exited during startup, see target/startup-logs");
+				try {
+					HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+					assertEquals(200, response.statusCode(), mode + " answered the first request with an error");
+					return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+				} catch (ConnectException e) {
+					// Not listening yet
+					Thread.sleep(10);
+				}
+			}
+			return fail(mode + " did not answer within " + START_TIMEOUT);
+		} finally {
+			process.destroy();
+			if (!process.waitFor(30, TimeUnit.SECONDS)) {
+				process.destroyForcibly().waitFor();
+			}
+		}
+	}
+
+	private static int freePort() throws IOException {
+		try (ServerSocket socket = new ServerSocket(0)) {
+			return socket.getLocalPort();
+		}
+	}
+}
@@ -0,0 +1,188 @@
+package com.example.demo.loadtest;
+
+import com.example.demo.SareetaApplication;
+import com.example.demo.security.JWTUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Serves the same read-heavy request (a user's order history summary, which goes to the database
+ * on every call) from the default platform-thread Tomcat pool and from the {@code virtual-threads}
+ * profile, at several levels of concurrent client connections. Each connection is held by its own
+ * client thread that sends a fixed number of requests back to back.
+ *
+ * <p>Only runs when asked for, for example
+ * {@code mvn test -Dtest=ThreadModeComparisonLoadTest -Dloadtest=true -Dloadtest.concurrency=1000,5000,10000}.
+ * Client and server share the JVM, so run it on a machine with cores and file descriptors to spare
+ * (two per connection). The report is printed and written to {@code target/thread-mode-report.json}.
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+public class ThreadModeComparisonLoadTest {
+
+	private static final List<Integer> CONCURRENCY = Arrays.stream(
+			System.getProperty("loadtest.concurrency", "1000,5000,10000").split(","))
+			.map(String::trim)
+			.map(Integer::valueOf)
+			.toList();
+	private static final int REQUESTS_PER_CONNECTION = Integer.getInteger("loadtest.requests-per-connection", 5);
+
+	private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(120);
+	private static final String PASSWORD = "load-test-password";
+
+	private final ObjectMapper json = new ObjectMapper();
+
+	@Test
+	@DisplayName("Platform and virtual request threads under 1k, 5k and 10k concurrent connections")
+	public void threadModes_concurrentConnections_reportsThroughputAndLatency() throws Exception {
+		List<Map<String, Object>> report = new ArrayList<>();
+		System.out.printf("%n%-9s %11s %10s %10s %10s %10s %10s %8s%n",
+				"mode", "connections", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors");
+		for (String mode : List.of("platform", "virtual")) {
+			try (ConfigurableApplicationContext context = start(mode)) {
+				int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+				String username = "load-" + UUID.randomUUID();
+				String authorization = createUserAndLogin(port, username);
+				// One untimed pass to warm the JIT and the connection pool
+				run(port, username, authorization, CONCURRENCY.getFirst());
+				for (int connections : CONCURRENCY) {
+					Map<String, Object> row = run(port, username, authorization, connections);
+					row.put("mode", mode);
+					report.add(row);
+					System.out.printf("%-9s %11d %10.1f %10.2f %10.2f %10.2f %10.2f %8d%n", mode, connections,
+							row.get("throughput"), row.get("p50Millis"), row.get("p99Millis"),
+							row.get("p999Millis"), row.get("maxMillis"), row.get("errors"));
+				}
+			}
+		}
+
+		Files.createDirectories(Path.of("target"));
+		json.writerWithDefaultPrettyPrinter().writeValue(Path.of("target", "thread-mode-report.json").toFile(), report);
+
+		assertAll(report.stream().map(row -> () -> assertEquals(0L, row.get("errors"),
+				row.get("mode") + " at " + row.get("connections") + " connections returned errors")));
+	}
+
+	private static ConfigurableApplicationContext start(String mode) {
+		SpringApplicationBuilder builder = new SpringApplicationBuilder(SareetaApplication.class)
+				.properties(
+						"server.port=0",
+						"spring.datasource.url=jdbc:h2:mem:thread-mode-" + mode + ";NON_KEYWORDS=user",
+						// Both modes accept the same number of connections, so only the threading differs
+						"server.tomcat.max-connections=16384",
+						"server.tomcat.accept-count=1024",
+						"logging.level.root=warn");
+		if (mode.equals("virtual")) {
+			builder.profiles("virtual-threads");
+		}
+		return builder.run();
+	}
+
+	private Map<String, Object> run(int port, String username, String authorization, int connections)
+			throws InterruptedException {
+		Recorder recorder = new Recorder(TimeUnit.MINUTES.toMicros(5), 3);
+		LongAdder errors = new LongAdder();
+		HttpRequest request = HttpRequest.newBuilder(URI.create(
+						"http://localhost:" + port + "/api/order/history/" + username + "/summary?limit=20"))
+				.header(JWTUtils.HEADER_STRING, authorization)
+				.timeout(REQUEST_TIMEOUT)
+				.GET()
+				.build();
+
+		// HTTP/1.1 carries one request at a time per socket, so the shared client opens a connection
+		// for each client thread sending concurrently and reuses it for that thread's next request
+		CountDownLatch ready = new CountDownLatch(connections);
+		CountDownLatch go = new CountDownLatch(1);
+		long start;
+		try (HttpClient client = HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(REQUEST_TIMEOUT)
+				.build();
+			 ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+			for (int i = 0; i < connections; i++) {
+				clients.submit(() -> {
+					ready.countDown();
+					go.await();
+					for (int r = 0; r < REQUESTS_PER_CONNECTION; r++) {
+						long sent = System.nanoTime();
+						try {
+							HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+							if (response.statusCode() != 200) {
+								errors.increment();
+							}
+						} catch (IOException e) {
+							errors.increment();
+						}
+						recorder.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - sent),
+								TimeUnit.MINUTES.toMicros(5)));
+					}
+					return null;
+				});
+			}
+			ready.await();
+			start = System.nanoTime();
+			go.countDown();
+		}
+		double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+		Histogram histogram = recorder.getIntervalHistogram();
+		Map<String, Object> row = new LinkedHashMap<>();
+		row.put("connections", connections);
+		row.put("requests", histogram.getTotalCount());
+		row.put("throughput", histogram.getTotalCount() / elapsedSeconds);
+		row.put("p50Millis", histogram.getValueAtPercentile(50) / 1000.0);
+		row.put("p99Millis", histogram.getValueAtPercentile(99) / 1000.0);
+		row.put("p999Millis", histogram.getValueAtPercentile(99.9) / 1000.0);
+		row.put("maxMillis", histogram.getMaxValue() / 1000.0);
+		row.put("errors", errors.sum());
+		return row;
+	}
+
+	private String createUserAndLogin(int port, String username) throws IOException, InterruptedException {
+		try (HttpClient client = HttpClient.newHttpClient()) {
+			HttpResponse<String> created = client.send(post(port, "/api/user/create", Map.of(
+					"username", username, "password", PASSWORD, "confirmPassword", PASSWORD)),
+					HttpResponse.BodyHandlers.ofString());
+			assertEquals(200, created.statusCode());
+			HttpResponse<String> login = client.send(post(port, JWTUtils.LOGIN_URL, Map.of(
+					"username", username, "password", PASSWORD)), HttpResponse.BodyHandlers.ofString());
+			assertEquals(200, login.statusCode());
+			return login.headers().firstValue(JWTUtils.HEADER_STRING).orElseThrow();
+		}
+	}
+
+	private HttpRequest post(int port, String path, Map<String, ?> body) throws IOException {
+		return HttpRequest.newBuilder(URI.create("http://localhost:" + port + path))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(json.writeValueAsString(body)))
+				.build();
+	}
+}
@@ -0,0 +1,39 @@
+package com.example.demo.search;
+
+import com.example.demo.model.money.Money;
+import com.example.demo.model.persistence.Item;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ItemSearchIndexTests {
+
+	@Test
+	@DisplayName("Repeated updates of one item are compacted away rather than piling up in the index")
+	public void put_sameItemUpdatedRepeatedly_keepsDocumentSlotsBounded() {
+		ItemSearchIndex index = new ItemSearchIndex();
+		int maxSlots = 0;
+		for (int i = 0; i < 3 * ItemSearchIndex.MIN_TOMBSTONES_BEFORE_COMPACTION; i++) {
+			index.put(item(1L, "Widget version " + i));
+			maxSlots = Math.max(maxSlots, index.documentSlots());
+		}
+		int peak = maxSlots;
+
+		assertAll(
+				() -> assertEquals(1, index.size()),
+				() -> assertTrue(peak <= ItemSearchIndex.MIN_TOMBSTONES_BEFORE_COMPACTION + 2, "peak slots " + peak),
+				() -> assertEquals(List.of(1L), index.search("widget", 10).stream().map(Item::getId).toList()));
+	}
+
+	private static Item item(long id, String name) {
+		Item item = new Item();
+		item.setId(id);
+		item.setName(name);
+		item.setDescription(name);
+		item.setPrice(Money.of("1.00"));
+		return item;
+	}
+}